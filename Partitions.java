@@ -1,6 +1,27 @@
 package a0;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
 public class Partitions {
+    // The Vector API is an incubator module, only present when added with
+    // --add-modules jdk.incubator.vector. PartitionsVector is only compiled
+    // with that flag too, so its kernels are looked up rather than linked,
+    // and are null when either the module or the class is missing.
+    private static final MethodHandle ADD_ADJACENT_INT = vectorKernel(
+        "addAdjacent", int[].class, int[].class, int.class, int.class);
+    private static final MethodHandle ADD_ADJACENT_LONG = vectorKernel(
+        "addAdjacent", long[].class, long[].class, int.class, int.class);
+    private static final MethodHandle ADD_ADJACENT_MOD = vectorKernel(
+        "addAdjacentMod", int[].class, int[].class, int.class, int.class,
+        int.class);
+
+    private static final boolean VECTOR_AVAILABLE = ADD_ADJACENT_INT != null
+        && ADD_ADJACENT_LONG != null
+        && ADD_ADJACENT_MOD != null;
+
+    private static volatile boolean vectorized = VECTOR_AVAILABLE;
 
     /** Count the number of ways to partition a set of size n into k nonempty subsets.
      *
@@ -30,6 +51,156 @@ public class Partitions {
                 + countPartitions(n - 1, k);
     }
 
+    /** Selects whether the rows of the triangle, as used by
+     * <code>PartitionsTable</code>, are computed several lanes at a time
+     * with the Vector API. On by default when the module is present.
+     *
+     * @param enable Whether to use the Vector API.
+     * @return Whether it is used from now on, which is false whenever
+     *         the jdk.incubator.vector module or the compiled
+     *         <code>PartitionsVector</code> is absent.
+     */
+    public static boolean setVectorized(boolean enable) {
+        vectorized = enable && VECTOR_AVAILABLE;
+        return vectorized;
+    }
+
+    /**
+     * @return Whether rows are computed with the Vector API.
+     */
+    public static boolean isVectorized() {
+        return vectorized;
+    }
+
+    /** Computes the lower half, k = 0..n/2, of row n of the
+     * <code>countPartitions</code> triangle from the lower half of row n - 1.
+     * The upper half follows by symmetry. Values wrap around exactly like
+     * the int arithmetic of <code>countPartitions</code> does.
+     *
+     * @param prev The lower half of row n - 1. Ignored if n is 0.
+     * @param next Receives the lower half of row n.
+     * @param n The row to be computed.
+     */
+    static void nextHalfRow(int[] prev, int[] next, int n) {
+        if (n == 0) {
+            next[0] = 0;
+            return;
+        }
+        next[0] = 1;
+        final int last = (n - 1) / 2;
+        int k = 1;
+        if (vectorized) {
+            k = addAdjacentVector(prev, next, k, last + 1);
+        }
+        for (; k <= last; ++k) {
+            next[k] = prev[k - 1] + prev[k];
+        }
+        if (n % 2 == 0) {
+            // countPartitions(n - 1, n / 2) mirrors to k = n / 2 - 1.
+            next[n / 2] = prev[n / 2 - 1] * 2;
+        }
+    }
+
+    /** Same as <code>nextHalfRow(int[], int[], int)</code>, wrapping around
+     * like long arithmetic instead.
+     */
+    static void nextHalfRow(long[] prev, long[] next, int n) {
+        if (n == 0) {
+            next[0] = 0;
+            return;
+        }
+        next[0] = 1;
+        final int last = (n - 1) / 2;
+        int k = 1;
+        if (vectorized) {
+            k = addAdjacentVector(prev, next, k, last + 1);
+        }
+        for (; k <= last; ++k) {
+            next[k] = prev[k - 1] + prev[k];
+        }
+        if (n % 2 == 0) {
+            next[n / 2] = prev[n / 2 - 1] * 2;
+        }
+    }
+
+    /** Same as <code>nextHalfRow(int[], int[], int)</code>, reducing every
+     * value modulo p instead.
+     *
+     * @require 0 < p
+     */
+    static void nextHalfRowMod(int[] prev, int[] next, int n, int p) {
+        if (n == 0) {
+            next[0] = 0;
+            return;
+        }
+        next[0] = 1 % p;
+        final int last = (n - 1) / 2;
+        int k = 1;
+        if (vectorized) {
+            k = addAdjacentModVector(prev, next, k, last + 1, p);
+        }
+        for (; k <= last; ++k) {
+            next[k] = addMod(prev[k - 1], prev[k], p);
+        }
+        if (n % 2 == 0) {
+            next[n / 2] = addMod(prev[n / 2 - 1], prev[n / 2 - 1], p);
+        }
+    }
+
+    /**
+     * @return The static method of PartitionsVector with the given name and
+     *         parameters, returning int, or null if it cannot be used.
+     */
+    private static MethodHandle vectorKernel(String name, Class<?>... params) {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return MethodHandles.lookup().findStatic(
+                Class.forName("a0.PartitionsVector"), name,
+                MethodType.methodType(int.class, params));
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    // The handles are constants, so invokeExact is inlined like a direct call.
+    private static int addAdjacentVector(int[] prev, int[] next, int from, int to) {
+        try {
+            return (int) ADD_ADJACENT_INT.invokeExact(prev, next, from, to);
+        }
+        catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int addAdjacentVector(long[] prev, long[] next, int from, int to) {
+        try {
+            return (int) ADD_ADJACENT_LONG.invokeExact(prev, next, from, to);
+        }
+        catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int addAdjacentModVector(int[] prev, int[] next,
+                                            int from, int to, int p) {
+        try {
+            return (int) ADD_ADJACENT_MOD.invokeExact(prev, next, from, to, p);
+        }
+        catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int addMod(int a, int b, int p) {
+        // a + b - p is in [-p, p); add p back if negative, without a
+        // branch, as a branch here is mispredicted half of the time.
+        final long s = (long) a + b - p;
+        return (int) (s + ((s >> 63) & p));
+    }
+
     public static void main(String[] args) {
         try {
             System.out.println("" + countPartitions(4, 4));
@@ -0,0 +1,95 @@
+package a0;
+
+import java.util.Arrays;
+
+/**
+ * Compares the scalar and the Vector API row kernels of
+ * <code>Partitions</code>, by filling every row of the triangle up to n,
+ * the way <code>PartitionsTable.write</code> does.
+ *
+ * Usage, with <code>vector/PartitionsVector.java</code> compiled in:
+ * <code>java --add-modules jdk.incubator.vector
+ * a0.PartitionsBenchmark [n ...]</code>
+ */
+public class PartitionsBenchmark {
+    // The vector kernels are slow until C2 has compiled them.
+    private static final long WARMUP_NANOS = 2_000_000_000L;
+    private static final int ROUNDS = 7;
+    private static final int P = 1_000_000_007;
+
+    /**
+     * Fills the rows up to maxN of the given kind: 0 int, 1 long, 2 mod.
+     *
+     * @return A value depending on the last row, so the work is kept.
+     */
+    private static long fill(int maxN, int kind) {
+        final int half = maxN / 2 + 1;
+        int[] pi = new int[half];
+        int[] ni = new int[half];
+        long[] pl = kind == 1 ? new long[half] : null;
+        long[] nl = kind == 1 ? new long[half] : null;
+        for (int n = 0; n <= maxN; ++n) {
+            switch (kind) {
+                case 0 -> Partitions.nextHalfRow(pi, ni, n);
+                case 1 -> Partitions.nextHalfRow(pl, nl, n);
+                default -> Partitions.nextHalfRowMod(pi, ni, n, P);
+            }
+            final int[] ti = pi;
+            pi = ni;
+            ni = ti;
+            final long[] tl = pl;
+            pl = nl;
+            nl = tl;
+        }
+        return kind == 1 ? pl[half - 1] : pi[half - 1];
+    }
+
+    /**
+     * @return The median throughput, in millions of entries per second.
+     */
+    private static double measure(int maxN, int kind, boolean vector) {
+        Partitions.setVectorized(vector);
+        final double entries = (double) (maxN / 2 + 1) * (maxN / 2 + 1);
+        final double[] rates = new double[ROUNDS];
+        long sink = 0;
+        final long warmup = System.nanoTime();
+        while (System.nanoTime() - warmup < WARMUP_NANOS) {
+            sink += fill(maxN, kind);
+        }
+        for (int i = 0; i < ROUNDS; ++i) {
+            final long start = System.nanoTime();
+            sink += fill(maxN, kind);
+            final long end = System.nanoTime();
+            rates[i] = entries / ((end - start) / 1e3);
+        }
+        if (sink == 42) {
+            System.out.print("");
+        }
+        Arrays.sort(rates);
+        return rates[ROUNDS / 2];
+    }
+
+    public static void main(String[] args) {
+        final int[] sizes = args.length > 0
+            ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+            : new int[] {1_000, 10_000, 100_000};
+
+        final boolean vector = Partitions.setVectorized(true);
+        if (!vector) {
+            System.out.println("jdk.incubator.vector is absent, "
+                + "both columns are scalar.");
+        }
+
+        final String[] kinds = {"int", "long", "mod"};
+        System.out.printf("%-6s %8s %14s %14s %8s%n",
+            "kind", "n", "scalar M/s", "vector M/s", "speedup");
+        for (int n : sizes) {
+            for (int kind = 0; kind < kinds.length; ++kind) {
+                final double scalar = measure(n, kind, false);
+                final double vectored = measure(n, kind, vector);
+                System.out.printf("%-6s %8d %14.1f %14.1f %8.2f%n",
+                    kinds[kind], n, scalar, vectored, vectored / scalar);
+            }
+        }
+    }
+}
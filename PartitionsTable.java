@@ -0,0 +1,341 @@
+package a0;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A precomputed, memory-mapped table of <code>Partitions.countPartitions</code>
+ * values.
+ *
+ * The file starts with a 32-byte header: the magic number, the format
+ * version, the kind of values, the largest n, the modulus and a CRC32 of
+ * the payload. The payload holds, row after row, the values for
+ * k = 0..n/2 only, as the triangle is symmetric.
+ */
+public class PartitionsTable {
+    /** The kind of values a table holds. */
+    public enum Kind {
+        /** Same values, overflow included, as <code>countPartitions</code>. */
+        INT(4),
+        /** The values wrapped around to 64 bits. */
+        LONG(8),
+        /** The values modulo a given p. */
+        MOD(4);
+
+        private final int width;
+
+        Kind(int width) {
+            this.width = width;
+        }
+    }
+
+    public static final int VERSION = 1;
+
+    /**
+     * The largest n a table can hold. A LONG table that large already
+     * takes 2^59 bytes, and this keeps well below the n, just under 2^30,
+     * at which the offsets of the payload and the loop over its rows
+     * would overflow.
+     */
+    public static final int MAX_N = 1 << 29;
+
+    private static final int MAGIC = 0x41305054; // "A0PT"
+    private static final int HEADER_SIZE = 32;
+
+    // Each mapping must stay below 2 GiB, the limit of a ByteBuffer.
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final Kind kind;
+    private final int maxN;
+    private final int modulus;
+    private final long checksum;
+    private final MappedByteBuffer[] chunks;
+
+    private PartitionsTable(Kind kind, int maxN, int modulus, long checksum,
+                            MappedByteBuffer[] chunks) {
+        this.kind = kind;
+        this.maxN = maxN;
+        this.modulus = modulus;
+        this.checksum = checksum;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Precomputes the table for every n up to maxN and writes it to file.
+     *
+     * @param file The file to be written. If it exists, it is replaced
+     *             atomically once the new table is complete: a process
+     *             that has the old one open keeps reading the old one.
+     * @param maxN The largest n the table answers, at most
+     *             <code>MAX_N</code>.
+     * @param kind The kind of values to store.
+     * @param modulus The p of <code>Kind.MOD</code>, ignored otherwise.
+     * @throws IllegalArgumentException if maxN or modulus is invalid.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path file, int maxN, Kind kind, int modulus)
+            throws IOException {
+        if (maxN < 0 || maxN > MAX_N) {
+            throw new IllegalArgumentException("Invalid n value.");
+        }
+        if (kind != Kind.MOD) {
+            modulus = 0;
+        }
+        else if (modulus <= 0) {
+            throw new IllegalArgumentException("Invalid modulus.");
+        }
+
+        // Written aside and moved over file, so that a process that has
+        // the old table mapped never sees it truncated.
+        final Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(),
+            file.getFileName() + ".", ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp,
+                    StandardOpenOption.WRITE)) {
+                writeTable(ch, maxN, kind, modulus);
+                ch.force(true);
+            }
+            // createTempFile makes the file private to its owner; keep
+            // the permissions of the table being replaced, if any.
+            if (Files.exists(file) && Files.getFileStore(tmp)
+                    .supportsFileAttributeView(PosixFileAttributeView.class)) {
+                Files.setPosixFilePermissions(tmp,
+                    Files.getPosixFilePermissions(file));
+            }
+            Files.move(tmp, file,
+                StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void writeTable(FileChannel ch, int maxN, Kind kind,
+                                   int modulus) throws IOException {
+        final int half = maxN / 2 + 1;
+        final int[] prevInt = kind == Kind.LONG ? null : new int[half];
+        final int[] nextInt = kind == Kind.LONG ? null : new int[half];
+        final long[] prevLong = kind == Kind.LONG ? new long[half] : null;
+        final long[] nextLong = kind == Kind.LONG ? new long[half] : null;
+
+        final CRC32 crc = new CRC32();
+        final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16);
+
+        ch.position(HEADER_SIZE);
+
+        int[] pi = prevInt;
+        int[] ni = nextInt;
+        long[] pl = prevLong;
+        long[] nl = nextLong;
+        for (int n = 0; n <= maxN; ++n) {
+            final int len = n / 2 + 1;
+            switch (kind) {
+                case INT -> Partitions.nextHalfRow(pi, ni, n);
+                case LONG -> Partitions.nextHalfRow(pl, nl, n);
+                case MOD -> Partitions.nextHalfRowMod(pi, ni, n, modulus);
+            }
+            for (int k = 0; k < len; ++k) {
+                if (buf.remaining() < kind.width) {
+                    flush(ch, buf, crc);
+                }
+                if (kind == Kind.LONG) {
+                    buf.putLong(nl[k]);
+                }
+                else {
+                    buf.putInt(ni[k]);
+                }
+            }
+
+            // Swap the rows.
+            final int[] ti = pi;
+            pi = ni;
+            ni = ti;
+            final long[] tl = pl;
+            pl = nl;
+            nl = tl;
+        }
+        flush(ch, buf, crc);
+
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+            .putInt(MAGIC)
+            .putInt(VERSION)
+            .putInt(kind.ordinal())
+            .putInt(maxN)
+            .putLong(modulus)
+            .putLong(crc.getValue())
+            .flip();
+        while (header.hasRemaining()) {
+            ch.write(header, header.position());
+        }
+    }
+
+    private static void flush(FileChannel ch, ByteBuffer buf, CRC32 crc)
+            throws IOException {
+        buf.flip();
+        crc.update(buf.duplicate());
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * Maps a table written by <code>write</code>. Nothing is computed, and
+     * the payload is not checked against its checksum; see
+     * <code>verify</code>.
+     *
+     * @param file The table file.
+     * @return The table.
+     * @throws IOException if the file cannot be read or has a bad header.
+     */
+    public static PartitionsTable open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (ch.read(header, header.position()) < 0) {
+                    throw new IOException("Truncated header.");
+                }
+            }
+            header.flip();
+
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a partitions table.");
+            }
+            final int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + ".");
+            }
+            final int ordinal = header.getInt();
+            if (ordinal < 0 || ordinal >= Kind.values().length) {
+                throw new IOException("Invalid kind.");
+            }
+            final Kind kind = Kind.values()[ordinal];
+            final int maxN = header.getInt();
+            final long modulus = header.getLong();
+            final long checksum = header.getLong();
+            if (maxN < 0 || maxN > MAX_N
+                || (kind == Kind.MOD) != (modulus > 0)
+                || modulus > Integer.MAX_VALUE) {
+                throw new IOException("Malformed header.");
+            }
+
+            final long size = rowStart(maxN + 1) * kind.width;
+            if (ch.size() != HEADER_SIZE + size) {
+                throw new IOException("Unexpected file size.");
+            }
+
+            final MappedByteBuffer[] chunks =
+                new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; ++i) {
+                final long offset = (long) i << CHUNK_SHIFT;
+                chunks[i] = ch.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE + offset,
+                    Math.min(CHUNK_MASK + 1, size - offset));
+            }
+            return new PartitionsTable(kind, maxN, (int) modulus, checksum,
+                chunks);
+        }
+    }
+
+    /**
+     * Looks a value up with a single indexed read.
+     *
+     * @param n The size of the set
+     * @param k The size of the partitions
+     * @require 0 <= k && k <= n && n <= maxN()
+     * @return <code>Partitions.countPartitions(n, k)</code>, as an int,
+     *         a long or modulo p depending on the kind of table.
+     */
+    public long countPartitions(int n, int k) {
+        if (n < 0 || n > maxN) {
+            throw new IllegalArgumentException("Invalid n value.");
+        }
+        if (k < 0 || k > n) {
+            throw new IllegalArgumentException("Invalid k value.");
+        }
+
+        final long offset = (rowStart(n) + Math.min(k, n - k)) * kind.width;
+        final MappedByteBuffer chunk = chunks[(int) (offset >>> CHUNK_SHIFT)];
+        final int pos = (int) (offset & CHUNK_MASK);
+        return kind == Kind.LONG ? chunk.getLong(pos) : chunk.getInt(pos);
+    }
+
+    /**
+     * Reads the whole payload and checks it against the header checksum.
+     *
+     * @return Whether the payload is intact.
+     */
+    public boolean verify() {
+        final CRC32 crc = new CRC32();
+        for (MappedByteBuffer chunk : chunks) {
+            crc.update(chunk.duplicate().clear());
+        }
+        return crc.getValue() == checksum;
+    }
+
+    /**
+     * @return The kind of values in this table.
+     */
+    public Kind kind() {
+        return kind;
+    }
+
+    /**
+     * @return The largest n this table answers.
+     */
+    public int maxN() {
+        return maxN;
+    }
+
+    /**
+     * @return The p of a <code>Kind.MOD</code> table, 0 otherwise.
+     */
+    public int modulus() {
+        return modulus;
+    }
+
+    /**
+     * The number of values stored for the rows before row n.
+     * Row m holds m/2 + 1 values, which sums up to (n-1)^2/4 + n.
+     */
+    private static long rowStart(int n) {
+        if (n == 0) {
+            return 0;
+        }
+        return (long) (n - 1) * (n - 1) / 4 + n;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 4) {
+            System.err.println(
+                "Usage: PartitionsTable <file> <maxN> [int|long|mod <p>]");
+            System.exit(2);
+        }
+        try {
+            final Path file = Path.of(args[0]);
+            final int maxN = Integer.parseInt(args[1]);
+            final Kind kind = args.length > 2
+                ? Kind.valueOf(args[2].toUpperCase())
+                : Kind.INT;
+            final int modulus = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+            write(file, maxN, kind, modulus);
+            System.out.println("Wrote " + file + ", verified: "
+                + open(file).verify());
+        }
+        catch (Throwable e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
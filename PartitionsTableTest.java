@@ -0,0 +1,141 @@
+package a0;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+class PartitionsTableTest {
+	private static Path write(int maxN, PartitionsTable.Kind kind, int p) throws IOException {
+		final Path file = Files.createTempFile("partitions", ".bin");
+		file.toFile().deleteOnExit();
+		PartitionsTable.write(file, maxN, kind, p);
+		return file;
+	}
+
+	// The exact value of countPartitions(n, k), before any overflow.
+	private static BigInteger exact(int n, int k) {
+		if (n == 0) {
+			return BigInteger.ZERO;
+		}
+		BigInteger ans = BigInteger.ONE;
+		for (int i = 0; i < k; ++i) {
+			ans = ans.multiply(BigInteger.valueOf(n - i))
+					.divide(BigInteger.valueOf(i + 1));
+		}
+		return ans;
+	}
+
+	@Test
+	void testIntTable() throws IOException {
+		final PartitionsTable table = PartitionsTable.open(write(20, PartitionsTable.Kind.INT, 0));
+		assertEquals(PartitionsTable.Kind.INT, table.kind());
+		assertEquals(20, table.maxN());
+		assertTrue(table.verify());
+		for (int n = 0; n <= 20; ++n) {
+			for (int k = 0; k <= n; ++k) {
+				assertEquals(Partitions.countPartitions(n, k), table.countPartitions(n, k));
+			}
+		}
+	}
+
+	@Test
+	void testLongAndModTables() throws IOException {
+		final int p = 1_000_000_007;
+		final PartitionsTable longs = PartitionsTable.open(write(300, PartitionsTable.Kind.LONG, 0));
+		final PartitionsTable mods = PartitionsTable.open(write(300, PartitionsTable.Kind.MOD, p));
+		assertEquals(p, mods.modulus());
+		for (int n = 0; n <= 300; ++n) {
+			for (int k = 0; k <= n; ++k) {
+				final BigInteger value = exact(n, k);
+				assertEquals(value.longValue(), longs.countPartitions(n, k));
+				assertEquals(value.mod(BigInteger.valueOf(p)).longValue(), mods.countPartitions(n, k));
+			}
+		}
+	}
+
+	@Test
+	void testLargeModulus() throws IOException {
+		// Sums of two residues overflow an int here.
+		final int p = Integer.MAX_VALUE;
+		final PartitionsTable mods = PartitionsTable.open(write(100, PartitionsTable.Kind.MOD, p));
+		for (int k = 0; k <= 100; ++k) {
+			assertEquals(exact(100, k).mod(BigInteger.valueOf(p)).longValue(), mods.countPartitions(100, k));
+		}
+	}
+
+	@Test
+	void testOutOfRange() throws IOException {
+		final PartitionsTable table = PartitionsTable.open(write(5, PartitionsTable.Kind.INT, 0));
+		assertThrows(IllegalArgumentException.class, () -> table.countPartitions(6, 0));
+		assertThrows(IllegalArgumentException.class, () -> table.countPartitions(5, 6));
+		assertThrows(IllegalArgumentException.class, () -> table.countPartitions(-1, 0));
+
+		// Too large to address, rejected before anything is written.
+		final Path file = Files.createTempFile("partitions", ".bin");
+		file.toFile().deleteOnExit();
+		assertThrows(IllegalArgumentException.class,
+				() -> PartitionsTable.write(file, Integer.MAX_VALUE, PartitionsTable.Kind.INT, 0));
+		assertThrows(IllegalArgumentException.class,
+				() -> PartitionsTable.write(file, PartitionsTable.MAX_N + 1, PartitionsTable.Kind.LONG, 0));
+		assertEquals(0, Files.size(file));
+	}
+
+	@Test
+	void testRewriteWhileOpen() throws IOException {
+		final Path file = write(1000, PartitionsTable.Kind.LONG, 0);
+		final PartitionsTable old = PartitionsTable.open(file);
+		final boolean posix = Files.getFileStore(file).supportsFileAttributeView(PosixFileAttributeView.class);
+		final Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r--r--");
+		if (posix) {
+			Files.setPosixFilePermissions(file, permissions);
+		}
+
+		// Replaced by a smaller table: the old mapping keeps its own file.
+		PartitionsTable.write(file, 10, PartitionsTable.Kind.INT, 0);
+		assertEquals(1000, old.maxN());
+		assertEquals(exact(1000, 500).longValue(), old.countPartitions(1000, 500));
+		assertTrue(old.verify());
+
+		final PartitionsTable table = PartitionsTable.open(file);
+		assertEquals(PartitionsTable.Kind.INT, table.kind());
+		assertEquals(10, table.maxN());
+		assertTrue(table.verify());
+		if (posix) {
+			assertEquals(permissions, Files.getPosixFilePermissions(file));
+		}
+
+		// No temporary file is left behind.
+		try (Stream<Path> siblings = Files.list(file.getParent())) {
+			assertEquals(0, siblings
+					.filter(f -> f.getFileName().toString().startsWith(file.getFileName() + "."))
+					.count());
+		}
+	}
+
+	@Test
+	void testCorruption() throws IOException {
+		final Path file = write(50, PartitionsTable.Kind.INT, 0);
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+			raf.seek(100);
+			raf.write(raf.read() ^ 0xFF);
+		}
+		assertFalse(PartitionsTable.open(file).verify());
+
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+			raf.seek(4);
+			raf.writeInt(PartitionsTable.VERSION + 1);
+		}
+		assertThrows(IOException.class, () -> PartitionsTable.open(file));
+	}
+}
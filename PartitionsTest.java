@@ -1,6 +1,7 @@
 package a0;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import org.junit.jupiter.api.Test;
 
@@ -19,6 +20,47 @@ class PartitionsTest {
 		assertEquals(1, Partitions.countPartitions(4, 4));
 	}
 
+	@Test
+	void testVectorizedRows() {
+		// Same rows with and without the Vector API.
+		final int maxN = 1000;
+		final int p = Integer.MAX_VALUE;
+		final boolean before = Partitions.isVectorized();
+		try {
+			// Skipped, rather than comparing scalar with scalar, when the
+			// module or the compiled PartitionsVector is missing.
+			assumeTrue(Partitions.setVectorized(true),
+				"jdk.incubator.vector or PartitionsVector is absent.");
+
+			final int[][] ints = new int[2][];
+			final long[][] longs = new long[2][];
+			final int[][] mods = new int[2][];
+			for (int mode = 0; mode < 2; ++mode) {
+				Partitions.setVectorized(mode == 1);
+				int[] pi = new int[maxN / 2 + 1], ni = new int[maxN / 2 + 1];
+				long[] pl = new long[maxN / 2 + 1], nl = new long[maxN / 2 + 1];
+				int[] pm = new int[maxN / 2 + 1], nm = new int[maxN / 2 + 1];
+				for (int n = 0; n <= maxN; ++n) {
+					Partitions.nextHalfRow(pi, ni, n);
+					Partitions.nextHalfRow(pl, nl, n);
+					Partitions.nextHalfRowMod(pm, nm, n, p);
+					int[] ti = pi; pi = ni; ni = ti;
+					long[] tl = pl; pl = nl; nl = tl;
+					int[] tm = pm; pm = nm; nm = tm;
+				}
+				ints[mode] = pi;
+				longs[mode] = pl;
+				mods[mode] = pm;
+			}
+			assertArrayEquals(ints[0], ints[1]);
+			assertArrayEquals(longs[0], longs[1]);
+			assertArrayEquals(mods[0], mods[1]);
+		}
+		finally {
+			Partitions.setVectorized(before);
+		}
+	}
+
 	/*
 	// C(x,y) = x! / y!
 
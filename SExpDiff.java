@@ -0,0 +1,347 @@
+package a0;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Structural diff and patch between two SExps.
+ *
+ * A path is an <code>int[]</code> of steps taken from the root. A step
+ * <code>k &gt;= 0</code> goes into the k-th element of the current list,
+ * that is k <code>rest()</code>s followed by a <code>first()</code>.
+ * A step <code>~k</code> (which is negative) goes to the tail left after
+ * k <code>rest()</code>s, which is how the improper tail of a dotted
+ * list is reached.
+ *
+ * Subtrees are compared by identity first, so parts shared by the two
+ * trees are skipped without walking them. Other subtrees are compared by
+ * <code>SExpHash</code>, and only those with the same hash are compared
+ * structurally, with <code>SExpOrder.compare</code>.
+ */
+public class SExpDiff {
+    /**
+     * Above this many element pairs, changed list regions are paired up
+     * by position instead of being aligned by LCS.
+     */
+    private static final long LCS_LIMIT = 1 << 20;
+
+    private static final int[] ROOT = {};
+
+    /**
+     * A single step of an edit script.
+     */
+    public sealed interface Edit permits Replace, Insert, Delete {
+        /**
+         * @return The path of the node this edit applies to.
+         */
+        int[] path();
+    }
+
+    /**
+     * Replaces the subtree at <code>path</code> with <code>value</code>.
+     */
+    public record Replace(int[] path, SExp value) implements Edit {
+        @Override
+        public String toString() {
+            return "Replace" + Arrays.toString(path)
+                + " " + A0SExp.listNotationFast(value);
+        }
+    }
+
+    /**
+     * Inserts <code>value</code> into the list at <code>path</code>, so that
+     * it becomes the element at <code>index</code>.
+     */
+    public record Insert(int[] path, int index, SExp value) implements Edit {
+        @Override
+        public String toString() {
+            return "Insert" + Arrays.toString(path) + "@" + index
+                + " " + A0SExp.listNotationFast(value);
+        }
+    }
+
+    /**
+     * Deletes the element at <code>index</code> from the list at
+     * <code>path</code>.
+     */
+    public record Delete(int[] path, int index) implements Edit {
+        @Override
+        public String toString() {
+            return "Delete" + Arrays.toString(path) + "@" + index;
+        }
+    }
+
+    /**
+     * Computes an edit script that turns x into y.
+     *
+     * Structural hashes are only used to find candidate matches. Every
+     * subtree that is skipped as unchanged has been checked to be
+     * <code>A0SExp.equal</code>, so the script is exact even if two
+     * different subtrees have the same hash.
+     *
+     * @param x The old SExp.
+     * @param y The new SExp.
+     * @return The edits, to be applied in order by <code>patch</code>.
+     *         Empty if and only if x and y are equal.
+     */
+    public static List<Edit> diff(SExp x, SExp y) {
+        final List<Edit> edits = new ArrayList<>();
+        diffNode(x, y, ROOT, edits, new SExpHash());
+        return edits;
+    }
+
+    /**
+     * Applies an edit script to x.
+     *
+     * @param x The SExp to be patched.
+     * @param edits The edits, usually produced by <code>diff</code>.
+     * @return The patched SExp.
+     * @ensure The original SExp x will remain unchanged, and the result
+     *         shares every untouched subtree with it.
+     * @throws IllegalArgumentException if an edit does not fit x.
+     */
+    public static SExp patch(SExp x, List<? extends Edit> edits) {
+        for (Edit edit : edits) {
+            if (edit instanceof Replace r) {
+                x = update(x, r.path, 0, old -> r.value);
+            }
+            else if (edit instanceof Insert i) {
+                x = update(x, append(i.path, ~i.index), 0,
+                    tail -> SExp.cons(i.value, tail));
+            }
+            else if (edit instanceof Delete d) {
+                x = update(x, append(d.path, ~d.index), 0, tail -> {
+                    if (!(tail instanceof SExp.Cons)) {
+                        throw new IllegalArgumentException("Invalid path.");
+                    }
+                    return tail.rest();
+                });
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Whether x and y are equal. Hashes only rule out subtrees that
+     * differ; a match is confirmed structurally, so that a collision
+     * never hides an edit.
+     */
+    private static boolean same(SExp x, SExp y, SExpHash hashes) {
+        return x == y
+            || (hashes.hashOf(x) == hashes.hashOf(y)
+                && SExpOrder.compare(x, y) == 0);
+    }
+
+    private static void diffNode(SExp x, SExp y, int[] path, List<Edit> edits,
+                                 SExpHash hashes) {
+        if (same(x, y, hashes)) {
+            return;
+        }
+        if (x instanceof SExp.Cons && y instanceof SExp.Cons) {
+            diffList(x, y, path, edits, hashes);
+        }
+        else {
+            edits.add(new Replace(path, y));
+        }
+    }
+
+    /**
+     * Diffs two cons spines element by element. Only the region between
+     * the common prefix and the common suffix is diffed.
+     */
+    private static void diffList(SExp x, SExp y, int[] path, List<Edit> edits,
+                                 SExpHash hashes) {
+        // Skip the common prefix, up to a tail the two lists share.
+        int pos = 0;
+        while (x instanceof SExp.Cons && y instanceof SExp.Cons
+            && same(x.first(), y.first(), hashes)) {
+            x = x.rest();
+            y = y.rest();
+            ++pos;
+            if (x == y) {
+                return;
+            }
+        }
+
+        final List<SExp> xs = new ArrayList<>();
+        final List<SExp> ys = new ArrayList<>();
+        for (; x instanceof SExp.Cons; x = x.rest()) {
+            xs.add(x.first());
+        }
+        for (; y instanceof SExp.Cons; y = y.rest()) {
+            ys.add(y.first());
+        }
+
+        // Skip the common suffix, which needs the same tails to end with.
+        int endX = xs.size();
+        int endY = ys.size();
+        SExp tailY = null;
+        if (same(x, y, hashes)) {
+            while (endX > 0 && endY > 0
+                && same(xs.get(endX - 1), ys.get(endY - 1), hashes)) {
+                --endX;
+                --endY;
+            }
+        }
+        else {
+            tailY = y;
+        }
+
+        pos = diffElements(xs.subList(0, endX), ys.subList(0, endY),
+            pos, path, edits, hashes);
+
+        if (tailY != null) {
+            edits.add(new Replace(append(path, ~pos), tailY));
+        }
+    }
+
+    /**
+     * Aligns two runs of list elements by their longest common subsequence
+     * and emits edits for everything outside of it.
+     *
+     * @return The position right after the last element of ys.
+     */
+    private static int diffElements(List<SExp> xs, List<SExp> ys, int pos,
+                                    int[] path, List<Edit> edits,
+                                    SExpHash hashes) {
+        final int m = xs.size();
+        final int n = ys.size();
+
+        if ((long) m * n > LCS_LIMIT) {
+            return diffRun(xs, ys, 0, m, 0, n, pos, path, edits, hashes);
+        }
+
+        // Equal elements get the same class, and only equal elements do.
+        final HashMap<Long, List<Integer>> byHash = new HashMap<>();
+        final List<SExp> reps = new ArrayList<>();
+        final int[] cx = new int[m];
+        final int[] cy = new int[n];
+        for (int i = 0; i < m; ++i) {
+            cx[i] = classOf(xs.get(i), byHash, reps, hashes);
+        }
+        for (int j = 0; j < n; ++j) {
+            cy[j] = classOf(ys.get(j), byHash, reps, hashes);
+        }
+
+        // lcs[i][j] is the LCS length of xs[i..] and ys[j..].
+        final int[][] lcs = new int[m + 1][n + 1];
+        for (int i = m - 1; i >= 0; --i) {
+            for (int j = n - 1; j >= 0; --j) {
+                lcs[i][j] = cx[i] == cy[j]
+                    ? lcs[i + 1][j + 1] + 1
+                    : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+            }
+        }
+
+        int i = 0;
+        int j = 0;
+        int runX = 0;
+        int runY = 0;
+        while (i < m || j < n) {
+            if (i < m && j < n && cx[i] == cy[j]) {
+                pos = diffRun(xs, ys, runX, i, runY, j, pos, path, edits,
+                    hashes);
+                ++i;
+                ++j;
+                ++pos;
+                runX = i;
+                runY = j;
+            }
+            else if (j < n && (i == m || lcs[i][j + 1] >= lcs[i + 1][j])) {
+                ++j;
+            }
+            else {
+                ++i;
+            }
+        }
+        return diffRun(xs, ys, runX, m, runY, n, pos, path, edits, hashes);
+    }
+
+    /**
+     * @return The index in reps of the element equal to e, which is added
+     *         to reps if there is none yet.
+     */
+    private static int classOf(SExp e, HashMap<Long, List<Integer>> byHash,
+                               List<SExp> reps, SExpHash hashes) {
+        final List<Integer> candidates = byHash.computeIfAbsent(
+            hashes.hashOf(e), h -> new ArrayList<>(1));
+        for (int c : candidates) {
+            final SExp rep = reps.get(c);
+            if (rep == e || SExpOrder.compare(rep, e) == 0) {
+                return c;
+            }
+        }
+        candidates.add(reps.size());
+        reps.add(e);
+        return reps.size() - 1;
+    }
+
+    /**
+     * Emits edits for a run of elements that have nothing in common:
+     * elements are paired up by position and diffed recursively, and
+     * whatever is left over is deleted or inserted.
+     */
+    private static int diffRun(List<SExp> xs, List<SExp> ys,
+                               int fromX, int toX, int fromY, int toY,
+                               int pos, int[] path, List<Edit> edits,
+                               SExpHash hashes) {
+        while (fromX < toX && fromY < toY) {
+            diffNode(xs.get(fromX++), ys.get(fromY++), append(path, pos++),
+                edits, hashes);
+        }
+        while (fromX++ < toX) {
+            edits.add(new Delete(path, pos));
+        }
+        while (fromY < toY) {
+            edits.add(new Insert(path, pos++, ys.get(fromY++)));
+        }
+        return pos;
+    }
+
+    /**
+     * Rebuilds x with the node at <code>path[depth..]</code> replaced by
+     * <code>f</code> applied to it.
+     */
+    private static SExp update(SExp x, int[] path, int depth,
+                               UnaryOperator<SExp> f) {
+        if (depth == path.length) {
+            return f.apply(x);
+        }
+
+        final int step = path[depth];
+        final int k = step >= 0 ? step : ~step;
+        final SExp[] spine = new SExp[k];
+        for (int i = 0; i < k; ++i) {
+            if (!(x instanceof SExp.Cons)) {
+                throw new IllegalArgumentException("Invalid path.");
+            }
+            spine[i] = x;
+            x = x.rest();
+        }
+
+        SExp ret;
+        if (step >= 0) {
+            if (!(x instanceof SExp.Cons)) {
+                throw new IllegalArgumentException("Invalid path.");
+            }
+            ret = SExp.cons(update(x.first(), path, depth + 1, f), x.rest());
+        }
+        else {
+            ret = update(x, path, depth + 1, f);
+        }
+
+        for (int i = k - 1; i >= 0; --i) {
+            ret = SExp.cons(spine[i].first(), ret);
+        }
+        return ret;
+    }
+
+    private static int[] append(int[] path, int step) {
+        final int[] ret = Arrays.copyOf(path, path.length + 1);
+        ret[path.length] = step;
+        return ret;
+    }
+}
@@ -0,0 +1,107 @@
+package a0;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static a0.SExp.*;
+import static a0.A0SExp.*;
+import static a0.SExpDiff.*;
+
+class SExpDiffTest {
+    private static void assertPatches(SExp x, SExp y) {
+        assertTrue(equal(y, patch(x, diff(x, y))));
+    }
+
+    @Test
+    void testEqualTrees() {
+        final SExp x = listFast("a", listFast("b", "c"), cons(s("d"), s("e")));
+        final SExp y = listFast("a", listFast("b", "c"), cons(s("d"), s("e")));
+        assertTrue(diff(x, x).isEmpty());
+        assertTrue(diff(x, y).isEmpty());
+        assertTrue(diff(nil(), nil()).isEmpty());
+    }
+
+    @Test
+    void testReplace() {
+        final List<Edit> edits = diff(
+            listFast("a", listFast("b", "c"), "d"),
+            listFast("a", listFast("b", "X"), "d")
+        );
+        assertEquals(1, edits.size());
+        final Replace r = (Replace) edits.get(0);
+        assertArrayEquals(new int[] {1, 1}, r.path());
+        assertEquals(s("X"), r.value());
+
+        assertPatches(s("a"), listFast("a", "b"));
+        assertPatches(listFast("a", "b"), nil());
+        assertPatches(cons(s("a"), s("b")), cons(s("a"), s("c")));
+    }
+
+    @Test
+    void testInsertDelete() {
+        final SExp x = listFast("a", "b", "c", "d");
+
+        List<Edit> edits = diff(x, listFast("a", "b", "X", "c", "d"));
+        assertEquals(1, edits.size());
+        final Insert i = (Insert) edits.get(0);
+        assertArrayEquals(new int[] {}, i.path());
+        assertEquals(2, i.index());
+
+        edits = diff(x, listFast("b", "c", "d"));
+        assertEquals(1, edits.size());
+        assertEquals(0, ((Delete) edits.get(0)).index());
+
+        assertPatches(x, listFast("X", "a", "c", "Y", "d", "Z"));
+        assertPatches(x, listFast("d", "c", "b", "a"));
+        assertPatches(listFast(), x);
+    }
+
+    @Test
+    void testNested() {
+        final SExp x = listFast(
+            listFast("servers", listFast("alpha", "8080"), listFast("beta")),
+            cons(s("mode"), s("fast")),
+            "tail"
+        );
+        final SExp y = listFast(
+            listFast("servers", listFast("alpha", "9090"), listFast("beta"),
+                listFast("gamma")),
+            cons(s("mode"), s("slow")),
+            "tail"
+        );
+        assertEquals(3, diff(x, y).size());
+        assertPatches(x, y);
+        assertPatches(y, x);
+    }
+
+    @Test
+    void testLongListSmallChange() {
+        final Object[] items = new Object[10000];
+        for (int i = 0; i < items.length; ++i) {
+            items[i] = "item" + i;
+        }
+        final SExp x = listFast(items);
+        items[5000] = listFast("changed");
+        final SExp y = listFast(items);
+
+        final List<Edit> edits = diff(x, y);
+        assertEquals(1, edits.size());
+        assertArrayEquals(new int[] {5000}, edits.get(0).path());
+
+        // A0SExp.equal recurses down the spine, too deep for this list.
+        assertEquals(listNotationFast(y), listNotationFast(patch(x, edits)));
+    }
+
+    @Test
+    void testPatchInvalidPath() {
+        try {
+            patch(listFast("a"), List.of(new Delete(new int[] {}, 3)));
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // Ignored.
+        }
+    }
+}
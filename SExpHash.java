@@ -0,0 +1,156 @@
+package a0;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+
+/**
+ * Structural hashing of SExps: two SExps that are
+ * <code>A0SExp.equal</code> always have the same hash.
+ *
+ * An instance remembers, by identity, the hashes of the sublists it has
+ * hashed, so hashing a tree that shares subtrees with an already hashed
+ * tree only visits the cells that are new. Only sublists that are
+ * elements of a list, and the SExps passed to <code>hashOf</code>, are
+ * remembered; the cells of a spine are not. The memory is held for as
+ * long as the instance is, so an instance is meant to be scoped to one
+ * operation, such as a diff.
+ *
+ * Instances are not thread-safe.
+ */
+public class SExpHash {
+    private static final long NIL_HASH = 0x9E3779B97F4A7C15L;
+    private static final long SYMBOL_SEED = 0xC2B2AE3D27D4EB4FL;
+
+    // Created on the first sublist, as most elements have none.
+    private IdentityHashMap<SExp, Long> memo = null;
+
+    /**
+     * Computes the structural hash of x in a non-recursive way, without
+     * remembering anything past the call.
+     *
+     * @param x The SExp to be hashed.
+     * @return The 64-bit structural hash of x.
+     */
+    public static long hash(SExp x) {
+        return x.isAtomic() ? atomHash(x) : new SExpHash().hashOf(x);
+    }
+
+    /**
+     * Computes the structural hash of x in a non-recursive way, reusing
+     * and remembering the hashes of its sublists.
+     *
+     * @param x The SExp to be hashed.
+     * @return The 64-bit structural hash of x, same as <code>hash(x)</code>.
+     */
+    public long hashOf(SExp x) {
+        if (x.isAtomic()) {
+            return atomHash(x);
+        }
+        final Long known = lookup(x);
+        if (known != null) {
+            return known;
+        }
+
+        // Post-order walk: a cons is combined once both parts are done.
+        final Deque<Object> st = new ArrayDeque<>();
+        final Deque<Long> done = new ArrayDeque<>();
+
+        expand(st, x, true);
+        while (!st.isEmpty()) {
+            final Object top = st.pop();
+            if (top instanceof Combine c) {
+                final long rest = done.pop();
+                final long first = done.pop();
+                final long h = combine(first, rest);
+                if (c.remembered) {
+                    remember(c.cons, h);
+                }
+                done.push(h);
+            }
+            else if (top instanceof Long h) {
+                done.push(h);
+            }
+            else if (top instanceof Element e) {
+                expand(st, e.exp, true);
+            }
+            else {
+                // A cell of a spine, or the atom that ends it.
+                final SExp e = (SExp) top;
+                if (e.isAtomic()) {
+                    done.push(atomHash(e));
+                }
+                else {
+                    expand(st, e, false);
+                }
+            }
+        }
+
+        return done.pop();
+    }
+
+    /**
+     * Pushes what it takes to hash the cons e. Its first() is looked up
+     * right away if it is a sublist, as that is the only place where it
+     * is known to be an element.
+     */
+    private void expand(Deque<Object> st, SExp e, boolean remembered) {
+        st.push(new Combine(e, remembered));
+        st.push(e.rest());
+
+        final SExp first = e.first();
+        if (first.isAtomic()) {
+            st.push(atomHash(first));
+        }
+        else {
+            final Long known = lookup(first);
+            st.push(known != null ? known : new Element(first));
+        }
+    }
+
+    private Long lookup(SExp x) {
+        return memo == null ? null : memo.get(x);
+    }
+
+    private void remember(SExp x, long h) {
+        if (memo == null) {
+            memo = new IdentityHashMap<>();
+        }
+        memo.put(x, h);
+    }
+
+    private static long atomHash(SExp x) {
+        if (x.isNil()) {
+            return NIL_HASH;
+        }
+        long h = SYMBOL_SEED;
+        final String s = x.toString();
+        for (int i = 0; i < s.length(); ++i) {
+            h = (h ^ s.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    private static long combine(long first, long rest) {
+        return mix(Long.rotateLeft(first, 31) * 0xFF51AFD7ED558CCDL + rest);
+    }
+
+    /**
+     * The MurmurHash3 64-bit finalizer.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private record Combine(SExp cons, boolean remembered) {}
+
+    /**
+     * A sublist that is the first() of a cons, to be remembered once hashed.
+     */
+    private record Element(SExp exp) {}
+}
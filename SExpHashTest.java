@@ -0,0 +1,66 @@
+package a0;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static a0.SExp.*;
+import static a0.A0SExp.*;
+import static a0.SExpHash.*;
+
+class SExpHashTest {
+    @Test
+    void testEqualMeansSameHash() {
+        assertEquals(hash(nil()), hash(nil()));
+        assertEquals(hash(s("a")), hash(s("a")));
+        assertEquals(
+            hash(listFast("a", listFast(nil(), "b", nil()), "c")),
+            hash(listFast("a", listFast(nil(), "b", nil()), "c"))
+        );
+    }
+
+    @Test
+    void testStructureMatters() {
+        assertNotEquals(hash(s("a")), hash(s("b")));
+        assertNotEquals(hash(nil()), hash(listFast(nil())));
+        assertNotEquals(hash(listFast("a", "b")), hash(listFast("b", "a")));
+        assertNotEquals(
+            hash(cons(s("a"), s("b"))),
+            hash(listFast("a", "b"))
+        );
+        assertNotEquals(
+            hash(listFast(listFast("a"), "b")),
+            hash(listFast("a", listFast("b")))
+        );
+    }
+
+    @Test
+    void testLongList() {
+        // Must not overflow the call stack, along a spine or in depth.
+        SExp x = nil();
+        SExp y = nil();
+        SExp deep = nil();
+        for (int i = 0; i < 100000; ++i) {
+            x = cons(s("" + i % 10), x);
+            y = cons(s("" + i % 10), y);
+            deep = cons(deep, nil());
+        }
+        assertEquals(hash(x), hash(y));
+        assertEquals(hash(x), new SExpHash().hashOf(x));
+        assertEquals(hash(deep), new SExpHash().hashOf(deep));
+    }
+
+    @Test
+    void testSharedSubtrees() {
+        // A tree of 2^60 cells, but only 60 distinct sublists.
+        SExp x = s("leaf");
+        SExp y = s("leaf");
+        for (int i = 0; i < 60; ++i) {
+            x = listFast(x, x);
+            y = listFast(y, y);
+        }
+        final SExpHash hashes = new SExpHash();
+        assertEquals(hashes.hashOf(x), hashes.hashOf(y));
+        assertEquals(hash(x), hashes.hashOf(x));
+        assertNotEquals(hash(x), hash(x.first()));
+    }
+}
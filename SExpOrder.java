@@ -0,0 +1,367 @@
+package a0;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * A total ordering over SExps, and sorting and merging of SExp lists.
+ *
+ * The ordering is Nil &lt; Symbol &lt; Cons. Symbols are ordered
+ * lexicographically by their names, and cons cells structurally: first
+ * by <code>first()</code>, then by <code>rest()</code>. Two SExps compare
+ * as 0 exactly when they are <code>A0SExp.equal</code>.
+ */
+public class SExpOrder {
+    /** The ordering, as a Comparator. */
+    public static final Comparator<SExp> ORDER = SExpOrder::compare;
+
+    /** Runs this short are sorted by binary insertion before being merged. */
+    private static final int RUN = 32;
+
+    /** Runs are first merged up to this length, one block at a time. */
+    private static final int BLOCK = 1 << 12;
+
+    /**
+     * Compares two SExps in a non-recursive way.
+     *
+     * @param x The SExp x.
+     * @param y The SExp y.
+     * @return Negative, zero or positive as x is less than, equal to,
+     *         or greater than y.
+     */
+    public static int compare(SExp x, SExp y) {
+        // Only needed for cons cells whose first() are cons cells too.
+        Deque<SExp> st = null;
+
+        while (true) {
+            if (x != y) {
+                final int rx = rank(x);
+                final int ry = rank(y);
+                if (rx != ry) {
+                    return Integer.compare(rx, ry);
+                }
+                if (rx == 1) {
+                    final int c = x.toString().compareTo(y.toString());
+                    if (c != 0) {
+                        return c;
+                    }
+                }
+                else if (rx == 2) {
+                    final SExp fx = x.first();
+                    final SExp fy = y.first();
+                    if (fx.isAtomic() && fy.isAtomic()) {
+                        // Compare atoms on the spot and move on to rest().
+                        final int c = compareAtoms(fx, fy);
+                        if (c != 0) {
+                            return c;
+                        }
+                        x = x.rest();
+                        y = y.rest();
+                        continue;
+                    }
+
+                    // Compare first() now, rest() later.
+                    if (st == null) {
+                        st = new ArrayDeque<>();
+                    }
+                    st.push(y.rest());
+                    st.push(x.rest());
+                    x = fx;
+                    y = fy;
+                    continue;
+                }
+            }
+
+            if (st == null || st.isEmpty()) {
+                return 0;
+            }
+            x = st.pop();
+            y = st.pop();
+        }
+    }
+
+    private static int compareAtoms(SExp x, SExp y) {
+        if (x.isNil() || y.isNil()) {
+            return Boolean.compare(!x.isNil(), !y.isNil());
+        }
+        return x.toString().compareTo(y.toString());
+    }
+
+    private static int rank(SExp x) {
+        if (x.isNil()) {
+            return 0;
+        }
+        return x.isAtomic() ? 1 : 2;
+    }
+
+    /**
+     * Sorts a list by <code>ORDER</code>. See
+     * <code>sort(SExp, Comparator)</code>.
+     *
+     * @param list The list to be sorted.
+     * @return The sorted list.
+     */
+    public static SExp sort(SExp list) {
+        return sort(list, ORDER);
+    }
+
+    /**
+     * Sorts a list with a stable bottom-up merge sort.
+     *
+     * SExps cannot be relinked in place, so the spine is read once into
+     * an array, merged there, and the sorted spine is built once. A list
+     * that is already sorted is returned as is.
+     *
+     * @param list The list to be sorted.
+     * @param cmp The ordering of the elements.
+     * @return The sorted list.
+     * @ensure The original list will remain unchanged.
+     * @throws IllegalArgumentException if list is not a proper list.
+     */
+    public static SExp sort(SExp list, Comparator<? super SExp> cmp) {
+        final SExp[] elems = toArray(list);
+        return sortArray(list, elems, elems, cmp);
+    }
+
+    /**
+     * Sorts a list by a key extracted from each element, ordered by
+     * <code>ORDER</code>.
+     *
+     * @param list The list to be sorted.
+     * @param key Extracts the sort key of an element. Called once for
+     *            each element.
+     * @return The sorted list.
+     * @throws IllegalArgumentException if list is not a proper list.
+     */
+    public static SExp sortBy(SExp list, Function<SExp, SExp> key) {
+        return sortBy(list, key, ORDER);
+    }
+
+    /**
+     * Sorts a list by a key extracted from each element.
+     *
+     * @param list The list to be sorted.
+     * @param key Extracts the sort key of an element. Called once for
+     *            each element.
+     * @param cmp The ordering of the keys.
+     * @return The sorted list.
+     * @throws IllegalArgumentException if list is not a proper list.
+     */
+    public static <K> SExp sortBy(SExp list, Function<SExp, K> key,
+                                  Comparator<? super K> cmp) {
+        final SExp[] elems = toArray(list);
+        final Object[] keys = new Object[elems.length];
+        for (int i = 0; i < elems.length; ++i) {
+            keys[i] = key.apply(elems[i]);
+        }
+        return sortArray(list, keys, elems, cmp);
+    }
+
+    /**
+     * Merges lists that are each sorted by <code>ORDER</code>.
+     * See <code>merge(Comparator, SExp...)</code>.
+     */
+    public static SExp merge(SExp... lists) {
+        return merge(ORDER, lists);
+    }
+
+    /**
+     * Merges lists that are each already sorted into one sorted list.
+     * The merge is stable: equal elements keep the order of the lists
+     * they come from.
+     *
+     * @param cmp The ordering the lists are sorted by.
+     * @param lists The sorted lists.
+     * @return The merged list.
+     * @throws IllegalArgumentException if a list is not a proper list.
+     */
+    public static SExp merge(Comparator<? super SExp> cmp, SExp... lists) {
+        int total = 0;
+        final PriorityQueue<Cursor> heads = new PriorityQueue<>((a, b) -> {
+            final int c = cmp.compare(a.spine.first(), b.spine.first());
+            return c != 0 ? c : Integer.compare(a.index, b.index);
+        });
+        for (int i = 0; i < lists.length; ++i) {
+            total += length(lists[i]);
+            if (!lists[i].isNil()) {
+                heads.add(new Cursor(lists[i], i));
+            }
+        }
+
+        final SExp[] merged = new SExp[total];
+        for (int i = 0; i < total; ++i) {
+            final Cursor c = heads.poll();
+            merged[i] = c.spine.first();
+            c.spine = c.spine.rest();
+            if (!c.spine.isNil()) {
+                heads.add(c);
+            }
+        }
+        return toList(merged);
+    }
+
+    private static final class Cursor {
+        private SExp spine;
+        private final int index;
+
+        Cursor(SExp spine, int index) {
+            this.spine = spine;
+            this.index = index;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SExp sortArray(SExp list, Object[] keys, SExp[] elems,
+                                  Comparator<?> comparator) {
+        final Comparator<Object> cmp = (Comparator<Object>) comparator;
+        final int n = elems.length;
+
+        boolean sorted = true;
+        for (int i = 1; i < n && sorted; ++i) {
+            sorted = cmp.compare(keys[i - 1], keys[i]) <= 0;
+        }
+        if (sorted) {
+            return list;
+        }
+
+        // When sorting by the elements themselves, keys and elems are the
+        // same array and are moved once.
+        final boolean keyed = keys != elems;
+
+        final Object[][] bufKeys = {keys, keyed ? new Object[n] : new SExp[n]};
+        final SExp[][] bufElems = {elems, keyed ? new SExp[n] : null};
+
+        // Sort cache-sized blocks first, so that the elements being
+        // compared stay in cache for several levels, then merge them.
+        int cur = 0;
+        for (int block = 0; block < n; block += BLOCK) {
+            final int end = Math.min(block + BLOCK, n);
+            for (int lo = block; lo < end; lo += RUN) {
+                insertionSort(keys, elems, lo, Math.min(lo + RUN, end), cmp,
+                    keyed);
+            }
+
+            cur = 0;
+            for (int width = RUN; width < BLOCK && width < n; width *= 2) {
+                mergePass(bufKeys[cur], bufElems[cur],
+                    bufKeys[cur ^ 1], bufElems[cur ^ 1],
+                    block, end, width, cmp, keyed);
+                cur ^= 1;
+            }
+        }
+        for (int width = BLOCK; width < n; width *= 2) {
+            mergePass(bufKeys[cur], bufElems[cur],
+                bufKeys[cur ^ 1], bufElems[cur ^ 1],
+                0, n, width, cmp, keyed);
+            cur ^= 1;
+        }
+
+        // Without keys, the elements were sorted as the keys.
+        return toList(keyed ? bufElems[cur] : (SExp[]) bufKeys[cur]);
+    }
+
+    /**
+     * Merges each pair of adjacent sorted runs of the given width
+     * in [from, to).
+     */
+    private static void mergePass(Object[] srcKeys, SExp[] srcElems,
+                                  Object[] dstKeys, SExp[] dstElems,
+                                  int from, int to, int width,
+                                  Comparator<Object> cmp, boolean keyed) {
+        for (int lo = from; lo < to; lo += 2 * width) {
+            final int mid = Math.min(lo + width, to);
+            final int hi = Math.min(lo + 2 * width, to);
+            mergeRuns(srcKeys, srcElems, dstKeys, dstElems,
+                lo, mid, hi, cmp, keyed);
+        }
+    }
+
+    private static void insertionSort(Object[] keys, SExp[] elems,
+                                      int lo, int hi,
+                                      Comparator<Object> cmp, boolean keyed) {
+        for (int i = lo + 1; i < hi; ++i) {
+            final Object k = keys[i];
+            final SExp e = elems[i];
+
+            // Binary search for the first greater key, to keep it stable.
+            int left = lo;
+            int right = i;
+            while (left < right) {
+                final int mid = (left + right) >>> 1;
+                if (cmp.compare(keys[mid], k) > 0) {
+                    right = mid;
+                }
+                else {
+                    left = mid + 1;
+                }
+            }
+
+            System.arraycopy(keys, left, keys, left + 1, i - left);
+            keys[left] = k;
+            if (keyed) {
+                System.arraycopy(elems, left, elems, left + 1, i - left);
+                elems[left] = e;
+            }
+        }
+    }
+
+    private static void mergeRuns(Object[] srcKeys, SExp[] srcElems,
+                                  Object[] dstKeys, SExp[] dstElems,
+                                  int lo, int mid, int hi,
+                                  Comparator<Object> cmp, boolean keyed) {
+        // Runs that are already in order are just copied.
+        if (mid == hi || cmp.compare(srcKeys[mid - 1], srcKeys[mid]) <= 0) {
+            System.arraycopy(srcKeys, lo, dstKeys, lo, hi - lo);
+            if (keyed) {
+                System.arraycopy(srcElems, lo, dstElems, lo, hi - lo);
+            }
+            return;
+        }
+
+        int i = lo;
+        int j = mid;
+        for (int k = lo; k < hi; ++k) {
+            // Take from the left run on ties, to keep it stable.
+            final int from = j >= hi
+                || (i < mid && cmp.compare(srcKeys[i], srcKeys[j]) <= 0)
+                ? i++
+                : j++;
+            dstKeys[k] = srcKeys[from];
+            if (keyed) {
+                dstElems[k] = srcElems[from];
+            }
+        }
+    }
+
+    private static int length(SExp list) {
+        int n = 0;
+        while (list instanceof SExp.Cons) {
+            list = list.rest();
+            ++n;
+        }
+        if (!list.isNil()) {
+            throw new IllegalArgumentException("Malformed list.");
+        }
+        return n;
+    }
+
+    private static SExp[] toArray(SExp list) {
+        final SExp[] ret = new SExp[length(list)];
+        for (int i = 0; i < ret.length; ++i) {
+            ret[i] = list.first();
+            list = list.rest();
+        }
+        return ret;
+    }
+
+    private static SExp toList(SExp[] elems) {
+        SExp ret = SExp.nil();
+        for (int i = elems.length - 1; i >= 0; --i) {
+            ret = new SExp.Cons(elems[i], ret);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,89 @@
+package a0;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares <code>SExpOrder.sort</code> with the convert-and-sort round trip
+ * it replaces: copying the list into a Java list, sorting that, and
+ * rebuilding the SExp with <code>listFast</code>. Reports the median time
+ * and the bytes allocated by one sort, on random and on sorted input.
+ *
+ * Usage: <code>SExpOrderBenchmark [size ...]</code>
+ */
+public class SExpOrderBenchmark {
+    private static final int WARMUP = 5;
+    private static final int ROUNDS = 15;
+
+    private static SExp roundTrip(SExp list) {
+        final List<SExp> elems = new ArrayList<>();
+        for (SExp x = list; !x.isNil(); x = x.rest()) {
+            elems.add(x.first());
+        }
+        elems.sort(SExpOrder.ORDER);
+        return A0SExp.listFast(elems.toArray());
+    }
+
+    private static SExp randomList(int n, Random random) {
+        final Object[] elems = new Object[n];
+        for (int i = 0; i < n; ++i) {
+            // Mixes symbols with small sublists.
+            elems[i] = random.nextInt(4) == 0
+                ? A0SExp.listFast("k" + random.nextInt(n), "v")
+                : "s" + random.nextInt(n);
+        }
+        return A0SExp.listFast(elems);
+    }
+
+    private static final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * @return The median time of a sort in milliseconds, and the bytes
+     *         allocated by the last one.
+     */
+    private static double[] measure(SExp list, boolean roundTrip) {
+        final double[] times = new double[ROUNDS];
+        long allocated = 0;
+        for (int i = -WARMUP; i < ROUNDS; ++i) {
+            final long bytes = threads.getCurrentThreadAllocatedBytes();
+            final long start = System.nanoTime();
+            final SExp sorted = roundTrip ? roundTrip(list) : SExpOrder.sort(list);
+            final long end = System.nanoTime();
+            allocated = threads.getCurrentThreadAllocatedBytes() - bytes;
+            if (sorted.isNil() != list.isNil()) {
+                throw new AssertionError();
+            }
+            if (i >= 0) {
+                times[i] = (end - start) / 1e6;
+            }
+        }
+        Arrays.sort(times);
+        return new double[] {times[ROUNDS / 2], allocated};
+    }
+
+    private static void report(String input, int n, SExp list) {
+        final double[] trip = measure(list, true);
+        final double[] sort = measure(list, false);
+        System.out.printf("%-8s %10d %12.3f %12.3f %12.1f %12.1f%n",
+            input, n, trip[0], sort[0], trip[1] / 1e6, sort[1] / 1e6);
+    }
+
+    public static void main(String[] args) {
+        final int[] sizes = args.length > 0
+            ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+            : new int[] {1_000, 100_000, 1_000_000};
+
+        final Random random = new Random(42);
+        System.out.printf("%-8s %10s %12s %12s %12s %12s%n", "input", "size",
+            "trip ms", "sort ms", "trip MB", "sort MB");
+        for (int n : sizes) {
+            final SExp list = randomList(n, random);
+            report("random", n, list);
+            report("sorted", n, SExpOrder.sort(list));
+        }
+    }
+}
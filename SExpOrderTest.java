@@ -0,0 +1,98 @@
+package a0;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static a0.SExp.*;
+import static a0.A0SExp.*;
+import static a0.SExpOrder.*;
+
+class SExpOrderTest {
+    @Test
+    void testCompare() {
+        assertEquals(0, compare(nil(), nil()));
+        assertTrue(compare(nil(), s("a")) < 0);
+        assertTrue(compare(s("a"), cons(nil(), nil())) < 0);
+        assertTrue(compare(s("a"), s("b")) < 0);
+        assertTrue(compare(s("b"), s("ab")) > 0);
+        assertTrue(compare(listFast("a", "b"), listFast("a", "c")) < 0);
+        assertTrue(compare(listFast("a"), listFast("a", "b")) < 0);
+        assertTrue(compare(cons(s("a"), s("b")), listFast("a", "b")) < 0);
+        assertEquals(0, compare(
+            listFast("a", listFast(nil(), "b", nil()), "c"),
+            listFast("a", listFast(nil(), "b", nil()), "c")
+        ));
+    }
+
+    @Test
+    void testSort() {
+        assertEquals(
+            "(() a b (a) (a b) (b))",
+            listNotationFast(sort(listFast(
+                listFast("b"), "b", listFast("a", "b"), nil(), listFast("a"), "a"
+            )))
+        );
+        assertEquals(nil(), sort(nil()));
+
+        // Already sorted lists come back untouched.
+        final SExp sorted = listFast("a", "b", "c");
+        assertSame(sorted, sort(sorted));
+
+        try {
+            sort(cons(s("a"), s("b")));
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // Ignored.
+        }
+    }
+
+    @Test
+    void testSortIsStable() {
+        // Pairs (key . seq), sorted by key only.
+        final Random random = new Random(42);
+        final List<SExp> pairs = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            pairs.add(cons(s("k" + random.nextInt(10)), s("" + i)));
+        }
+        final SExp list = listFast(pairs.toArray());
+
+        pairs.sort(Comparator.comparing(p -> p.first().toString()));
+        final String expected = listNotationFast(listFast(pairs.toArray()));
+
+        assertEquals(expected, listNotationFast(sortBy(list, SExp::first)));
+        assertEquals(expected, listNotationFast(
+            sort(list, Comparator.comparing(p -> p.first().toString()))));
+        assertEquals(expected, listNotationFast(
+            sortBy(list, p -> p.first().toString(), Comparator.naturalOrder())));
+    }
+
+    @Test
+    void testMerge() {
+        assertEquals(
+            "(a b b c d e f)",
+            listNotationFast(merge(
+                listFast("a", "d"),
+                nil(),
+                listFast("b", "c", "f"),
+                listFast("b", "e")
+            ))
+        );
+        assertEquals(nil(), merge());
+
+        // Ties keep the order of the lists.
+        final SExp x = cons(s("k"), s("x"));
+        final SExp y = cons(s("k"), s("y"));
+        final SExp merged = merge(
+            Comparator.comparing((SExp p) -> p.first().toString()),
+            listFast(x), listFast(y)
+        );
+        assertSame(x, merged.first());
+        assertSame(y, merged.rest().first());
+    }
+}
@@ -0,0 +1,302 @@
+package a0;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A compiled path query over SExps, such as <code>/config/servers/*&#47;host</code>.
+ *
+ * A list is seen as a node whose children are its elements, where an
+ * element that is a cons with a symbol <code>first()</code> is a key-value
+ * pair, in the same sense as <code>A0SExp.lookup</code>: the child is its
+ * <code>rest()</code>, labelled with the key. Each step of a path is one of:
+ * <ul>
+ *   <li><code>name</code>: the values of every pair keyed by name.</li>
+ *   <li><code>*</code>: every child, pair values included.</li>
+ *   <li><code>**</code>: the node itself and all of its descendants.</li>
+ * </ul>
+ * Results come in document order and are produced lazily, so stopping
+ * early stops the walk.
+ */
+public class SExpPath {
+    private static final int NAME = 0;
+    private static final int ANY = 1;
+    private static final int DESCENDANTS = 2;
+
+    private final String source;
+    private final int[] kinds;
+    private final SExp.Symbol[] names;
+
+    private SExpPath(String source, int[] kinds, SExp.Symbol[] names) {
+        this.source = source;
+        this.kinds = kinds;
+        this.names = names;
+    }
+
+    /**
+     * Parses a path.
+     *
+     * @param path The path, made of <code>/</code>-prefixed steps.
+     *             <code>/</code> alone matches the root.
+     * @return The compiled path.
+     * @throws IllegalArgumentException if the path is malformed.
+     */
+    public static SExpPath compile(String path) {
+        if (!path.startsWith("/")) {
+            throw new IllegalArgumentException("Malformed path.");
+        }
+
+        final List<String> parts = new ArrayList<>();
+        if (path.length() > 1) {
+            for (String part : path.substring(1).split("/", -1)) {
+                if (part.isEmpty()) {
+                    throw new IllegalArgumentException("Malformed path.");
+                }
+                // Consecutive ** match the same as a single one.
+                if (part.equals("**") && !parts.isEmpty()
+                    && parts.get(parts.size() - 1).equals("**")) {
+                    continue;
+                }
+                parts.add(part);
+            }
+        }
+
+        // Matched steps are tracked as the bits of a long.
+        if (parts.size() >= Long.SIZE) {
+            throw new IllegalArgumentException("Path too long.");
+        }
+
+        final int[] kinds = new int[parts.size()];
+        final SExp.Symbol[] names = new SExp.Symbol[parts.size()];
+        for (int i = 0; i < kinds.length; ++i) {
+            switch (parts.get(i)) {
+                case "*" -> kinds[i] = ANY;
+                case "**" -> kinds[i] = DESCENDANTS;
+                default -> {
+                    kinds[i] = NAME;
+                    names[i] = SExp.symbol(parts.get(i));
+                }
+            }
+        }
+        return new SExpPath(path, kinds, names);
+    }
+
+    /**
+     * Walks root lazily for the nodes matching this path.
+     *
+     * @param root The SExp to be queried.
+     * @return The matching nodes, in document order.
+     */
+    public Iterator<SExp> iterator(SExp root) {
+        return new Matcher(root);
+    }
+
+    /**
+     * @param root The SExp to be queried.
+     * @return The matching nodes, in document order.
+     */
+    public Stream<SExp> stream(SExp root) {
+        return toStream(iterator(root));
+    }
+
+    /**
+     * Queries an index instead of walking the tree. Paths that end with a
+     * named step are answered from the index alone; other paths fall back
+     * to walking the indexed SExp.
+     *
+     * @param index The index of the SExp to be queried.
+     * @return The matching nodes, in document order.
+     */
+    public Stream<SExp> stream(SExpPathIndex index) {
+        if (kinds.length == 0 || kinds[kinds.length - 1] != NAME) {
+            return stream(index.root());
+        }
+        return index.entries(names[kinds.length - 1].toString()).stream()
+            .filter(e -> matches(e.path().toArray()))
+            .map(SExpPathIndex.Entry::node);
+    }
+
+    /**
+     * @param root The SExp to be queried.
+     * @return The first matching node, or Nil if nothing matches.
+     */
+    public SExp first(SExp root) {
+        final Iterator<SExp> it = iterator(root);
+        return it.hasNext() ? it.next() : SExp.nil();
+    }
+
+    /**
+     * @param index The index of the SExp to be queried.
+     * @return The first matching node, or Nil if nothing matches.
+     */
+    public SExp first(SExpPathIndex index) {
+        return stream(index).findFirst().orElse(SExp.nil());
+    }
+
+    /**
+     * Checks whether the steps match exactly the given labels,
+     * where a label is either a key or an element index.
+     */
+    private boolean matches(Object[] labels) {
+        // ok[j]: the steps so far can match labels[0..j).
+        boolean[] ok = new boolean[labels.length + 1];
+        ok[0] = true;
+        for (int i = 0; i < kinds.length; ++i) {
+            final boolean[] next = new boolean[labels.length + 1];
+            for (int j = 0; j <= labels.length; ++j) {
+                if (kinds[i] == DESCENDANTS) {
+                    next[j] = ok[j] || (j > 0 && next[j - 1]);
+                }
+                else if (j > 0 && ok[j - 1]) {
+                    next[j] = kinds[i] == ANY
+                        || names[i].toString().equals(labels[j - 1]);
+                }
+            }
+            ok = next;
+        }
+        return ok[labels.length];
+    }
+
+    private static Stream<SExp> toStream(Iterator<SExp> it) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+            it, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * @return The source of this path.
+     */
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * Whether an element of a list is a key-value pair.
+     */
+    static boolean isPair(SExp e) {
+        return e instanceof SExp.Cons && e.first() instanceof SExp.Symbol;
+    }
+
+    /**
+     * Adds, for every ** reached, the state of having matched it
+     * with zero levels.
+     */
+    private long closure(long states) {
+        for (int i = 0; i < kinds.length; ++i) {
+            if ((states & (1L << i)) != 0 && kinds[i] == DESCENDANTS) {
+                states |= 1L << (i + 1);
+            }
+        }
+        return states;
+    }
+
+    /**
+     * The states reached by stepping from a list into its element e.
+     */
+    private long step(long states, SExp e) {
+        long ret = 0;
+        for (int i = 0; i < kinds.length; ++i) {
+            if ((states & (1L << i)) == 0) {
+                continue;
+            }
+            switch (kinds[i]) {
+                case ANY -> ret |= 1L << (i + 1);
+                case DESCENDANTS -> ret |= 1L << i;
+                default -> {
+                    if (isPair(e) && e.first().eq(names[i])) {
+                        ret |= 1L << (i + 1);
+                    }
+                }
+            }
+        }
+        return closure(ret);
+    }
+
+    /**
+     * A node to be visited, with the set of steps matched so far on the
+     * way to it: bit i is set if the steps before step i are matched.
+     */
+    private record Visit(SExp node, long states) {}
+
+    /**
+     * Goes through the elements of a visited list, one at a time.
+     */
+    private static final class Cursor {
+        private SExp spine;
+        private final long states;
+
+        Cursor(SExp spine, long states) {
+            this.spine = spine;
+            this.states = states;
+        }
+    }
+
+    /**
+     * The iterative matcher: a preorder walk driven by an explicit stack,
+     * advanced only as far as the next result. Subtrees where no step can
+     * match any more are skipped.
+     */
+    private final class Matcher implements Iterator<SExp> {
+        private final Deque<Object> st = new ArrayDeque<>();
+        private final long done = 1L << kinds.length;
+        private SExp next;
+
+        Matcher(SExp root) {
+            st.push(new Visit(root, closure(1L)));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public SExp next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final SExp ret = next;
+            next = null;
+            return ret;
+        }
+
+        private SExp advance() {
+            while (!st.isEmpty()) {
+                if (st.peek() instanceof Cursor c) {
+                    if (!(c.spine instanceof SExp.Cons)) {
+                        st.pop();
+                        continue;
+                    }
+                    final SExp e = c.spine.first();
+                    c.spine = c.spine.rest();
+
+                    final long states = step(c.states, e);
+                    if (states != 0) {
+                        st.push(new Visit(isPair(e) ? e.rest() : e, states));
+                    }
+                    continue;
+                }
+
+                final Visit v = (Visit) st.pop();
+                if (v.node instanceof SExp.Cons && (v.states & (done - 1)) != 0) {
+                    st.push(new Cursor(v.node, v.states));
+                }
+                if ((v.states & done) != 0) {
+                    return v.node;
+                }
+            }
+            return null;
+        }
+    }
+}
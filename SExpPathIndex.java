@@ -0,0 +1,103 @@
+package a0;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A prebuilt index over a SExp, from every key (in the sense of
+ * <code>SExpPath</code>) to the paths where it occurs, so that queries
+ * with a named step do not have to scan the whole tree.
+ *
+ * The index is only valid as long as the indexed SExp is not mutated.
+ */
+public class SExpPathIndex {
+    private final SExp root;
+    private final HashMap<String, List<Entry>> entries;
+
+    private SExpPathIndex(SExp root, HashMap<String, List<Entry>> entries) {
+        this.root = root;
+        this.entries = entries;
+    }
+
+    /**
+     * Indexes every key-value pair in root, in a non-recursive way.
+     *
+     * @param root The SExp to be indexed.
+     * @return The index.
+     */
+    public static SExpPathIndex build(SExp root) {
+        final HashMap<String, List<Entry>> entries = new HashMap<>();
+        final Deque<Entry> st = new ArrayDeque<>();
+        final List<Entry> children = new ArrayList<>();
+
+        st.push(new Entry(null, root));
+        while (!st.isEmpty()) {
+            final Entry e = st.pop();
+            if (e.path != null && e.path.step instanceof String key) {
+                entries.computeIfAbsent(key, k -> new ArrayList<>()).add(e);
+            }
+
+            children.clear();
+            int i = 0;
+            for (SExp x = e.node; x instanceof SExp.Cons; x = x.rest(), ++i) {
+                final SExp elem = x.first();
+                if (SExpPath.isPair(elem)) {
+                    children.add(new Entry(
+                        new Label(elem.first().toString(), e.path),
+                        elem.rest()));
+                }
+                else {
+                    children.add(new Entry(new Label(i, e.path), elem));
+                }
+            }
+
+            // Reversed, so that entries are added in document order.
+            for (int j = children.size() - 1; j >= 0; --j) {
+                st.push(children.get(j));
+            }
+        }
+        return new SExpPathIndex(root, entries);
+    }
+
+    /**
+     * @return The indexed SExp.
+     */
+    public SExp root() {
+        return root;
+    }
+
+    /**
+     * @param key A key.
+     * @return The value of every pair keyed by key, in document order.
+     */
+    List<Entry> entries(String key) {
+        return entries.getOrDefault(key, Collections.emptyList());
+    }
+
+    /**
+     * A node together with the path leading to it from the root.
+     */
+    record Entry(Label path, SExp node) {}
+
+    /**
+     * The last step of a path, which is a key or an element index,
+     * linked to the steps before it. The root has a null path.
+     */
+    record Label(Object step, Label parent) {
+        Object[] toArray() {
+            int depth = 0;
+            for (Label l = this; l != null; l = l.parent) {
+                ++depth;
+            }
+            final Object[] ret = new Object[depth];
+            for (Label l = this; l != null; l = l.parent) {
+                ret[--depth] = l.step;
+            }
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package a0;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static a0.SExp.*;
+import static a0.A0SExp.*;
+
+class SExpPathTest {
+    // ((config (servers ((host . a) (port . 1)) ((host . b) (port . 2)))
+    //          (mode . fast))
+    //  (host . top))
+    private static final SExp DOC = listFast(
+        listFast(
+            "config",
+            listFast(
+                "servers",
+                listFast(cons(s("host"), s("a")), cons(s("port"), s("1"))),
+                listFast(cons(s("host"), s("b")), cons(s("port"), s("2")))
+            ),
+            cons(s("mode"), s("fast"))
+        ),
+        cons(s("host"), s("top"))
+    );
+
+    private static String render(List<SExp> exps) {
+        return listNotationFast(listFast(exps.toArray()));
+    }
+
+    private static String query(String path) {
+        return render(SExpPath.compile(path).stream(DOC).toList());
+    }
+
+    @Test
+    void testNames() {
+        assertEquals("(a b)", query("/config/servers/*/host"));
+        assertEquals("(fast)", query("/config/mode"));
+        assertEquals("(top)", query("/host"));
+        assertEquals("()", query("/config/nothing"));
+        assertEquals("()", query("/host/deeper"));
+        assertEquals(DOC, SExpPath.compile("/").first(DOC));
+    }
+
+    @Test
+    void testWildcards() {
+        assertEquals("(a 1 b 2)", query("/config/servers/*/*"));
+        assertEquals("(a b top)", query("/**/host"));
+        assertEquals("(1 2)", query("/**/servers/*/port"));
+        assertEquals("(1 2)", query("/config/**/port"));
+        assertEquals(s("a"), SExpPath.compile("/**/host").first(DOC));
+        assertEquals(nil(), SExpPath.compile("/**/missing").first(DOC));
+    }
+
+    @Test
+    void testIndex() {
+        final SExpPathIndex index = SExpPathIndex.build(DOC);
+        final String[] paths = {
+            "/", "/host", "/config/mode", "/config/servers/*/host",
+            "/**/host", "/*/*/*/port", "/**/servers/*", "/config/*/**",
+            "/config/missing", "/missing/**",
+        };
+        for (String path : paths) {
+            final SExpPath p = SExpPath.compile(path);
+            assertEquals(
+                render(p.stream(DOC).toList()),
+                render(p.stream(index).toList()),
+                path
+            );
+        }
+    }
+
+    @Test
+    void testEarlyTermination() {
+        final Object[] items = new Object[100000];
+        for (int i = 0; i < items.length; ++i) {
+            items[i] = cons(s("item"), s("" + i));
+        }
+        final SExp doc = listFast(items);
+        final Iterator<SExp> it = SExpPath.compile("/item").iterator(doc);
+        assertEquals(s("0"), it.next());
+        assertEquals(s("1"), it.next());
+        assertEquals(s("99999"),
+            SExpPath.compile("/item").stream(doc).skip(99999).findFirst().get());
+    }
+
+    @Test
+    void testMalformed() {
+        for (String path : new String[] {"", "config", "/a//b", "/a/"}) {
+            try {
+                SExpPath.compile(path);
+                fail(path);
+            }
+            catch (IllegalArgumentException e) {
+                // Ignored.
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package a0;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Stack;
+
+/**
+ * A size-bounded cache of <code>A0SExp.listNotationFast</code> renderings.
+ *
+ * Entries are keyed by node identity, so they are only valid as long as
+ * the cached trees are never mutated. Eviction is LRU, weighted by the
+ * length of the cached string.
+ *
+ * Besides whole trees, the sublists that are elements of a rendered tree
+ * are cached too, and sublists found in the cache at any depth are
+ * spliced in, so rendering a tree that contains an already-rendered
+ * subtree only walks the parts that are new. Deeper sublists are not
+ * cached, so that a render copies each char into the cache at most twice.
+ *
+ * Like the doorkeeper of TinyLFU, a rendering is only admitted the second
+ * time it is built. Trees that are rendered once never evict anything.
+ */
+public class SExpRenderCache {
+    /**
+     * Renderings shorter than this are cheaper to rebuild than to look up.
+     */
+    private static final int MIN_CACHED_LENGTH = 16;
+
+    private final long maxWeight;
+    private final LinkedHashMap<IdentityKey, String> fragments =
+        new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * A Bloom filter of the renderings built once since it was last
+     * cleared, indexed by identity hash.
+     */
+    private final long[] doorkeeper;
+    private int doorkeeperSize = 0;
+
+    private long weight = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    /**
+     * @param maxWeight The maximum total length, in chars, of all the
+     *                  renderings kept in the cache.
+     * @throws IllegalArgumentException if maxWeight is negative.
+     */
+    public SExpRenderCache(long maxWeight) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Invalid max weight.");
+        }
+        this.maxWeight = maxWeight;
+
+        // About 8 bits for each rendering the cache can hold at once.
+        final long bits = Math.min(Math.max(maxWeight / 2, 1 << 12), 1 << 24);
+        doorkeeper = new long[(int) (Long.highestOneBit(bits) >>> 6)];
+    }
+
+    /**
+     * Renders x exactly like <code>A0SExp.listNotationFast</code> does,
+     * reusing the cached renderings of x and of its sublists if possible.
+     *
+     * @param x The SExp to be rendered.
+     * @return The list notation of x.
+     */
+    public synchronized String listNotation(SExp x) {
+        // Special cases where x is simply a Nil or a symbol.
+        if (x.isNil()) {
+            return "()";
+        }
+        if (x.isAtomic()) {
+            return x.toString();
+        }
+        return ("(" + fragment(x)).trim();
+    }
+
+    /**
+     * The text <code>listNotationFast</code> appends while it processes
+     * the cons x and everything pushed on behalf of it. The text does not
+     * depend on what was appended before x, which is what makes it safe
+     * to splice a cached fragment into any other rendering.
+     *
+     * Only x and the sublists that are elements of a list are looked up,
+     * as they are the only nodes whose fragments get cached. The cells of
+     * a spine are walked without touching the map. Of those, only x and
+     * the elements of x itself are put back.
+     */
+    private String fragment(SExp x) {
+        String cached = get(x);
+        if (cached != null) {
+            return cached;
+        }
+
+        StringBuilder builder = new StringBuilder();
+        Stack<Object> st = new Stack<>();
+
+        // The next cell of the spine of x, whose element is cached too.
+        SExp spine = x;
+
+        st.push(new FragmentEnd(x, 0));
+        st.push(x);
+        while (!st.empty()) {
+            Object top = st.pop();
+            if (top instanceof FragmentEnd end) {
+                // Checked before the fragment is copied out.
+                if (admit(end.exp, builder.length() - end.start)) {
+                    put(end.exp, builder.substring(end.start));
+                }
+                continue;
+            }
+            if (top instanceof String fragment) {
+                // The cached rendering of a sublist.
+                builder.append(fragment);
+                continue;
+            }
+
+            SExp exp = (SExp) top;
+            if (exp.isNil()) {
+                // To prevent unexpected whitespaces.
+                int len = builder.length();
+                if (len > 0) {
+                    switch (builder.charAt(len - 1)) {
+                        case ')', ' ' -> builder.setLength(len - 1);
+                    }
+                }
+
+                // Close bracket immediately for nil values.
+                builder.append(") ");
+            }
+            else if (exp.isAtomic()) {
+                // Append atomic exps.
+                builder.append(exp).append(" ");
+            }
+            else {
+                if (exp.first() instanceof SExp.Symbol
+                    && exp.rest() instanceof SExp.Symbol) {
+                    // Dotted pair?
+                    builder.append(exp.first())
+                        .append(" . ")
+                        .append(exp.rest())
+                        .append(")");
+                }
+                else {
+                    // Push cons into stack.
+                    st.push(exp.rest());
+                    if (exp.first().isAtomic()) {
+                        st.push(exp.first());
+                    }
+                    else if ((cached = get(exp.first())) != null) {
+                        st.push(cached);
+                    }
+                    else {
+                        if (exp == spine) {
+                            // Elements of x are cached on their own once
+                            // done. The +1 skips the bracket opened below.
+                            st.push(new FragmentEnd(
+                                exp.first(), builder.length() + 1));
+                        }
+                        st.push(exp.first());
+                    }
+                }
+                if (exp == spine) {
+                    spine = exp.rest();
+                }
+
+                // Start a bracket for first or nil cons parts.
+                if (!exp.first().isAtomic() || exp.first().isNil()) {
+                    builder.append("(");
+                }
+            }
+        } // while
+
+        return builder.toString();
+    }
+
+    private String get(SExp x) {
+        final String cached = fragments.get(new IdentityKey(x));
+        if (cached != null) {
+            ++hitCount;
+        }
+        else {
+            ++missCount;
+        }
+        return cached;
+    }
+
+    /**
+     * Whether the rendering of x, of the given length, is to be cached.
+     * The first time a rendering is seen it is only remembered by the
+     * doorkeeper.
+     */
+    private boolean admit(SExp x, int length) {
+        if (length < MIN_CACHED_LENGTH || length > maxWeight) {
+            return false;
+        }
+
+        final long h = System.identityHashCode(x) * 0x9E3779B97F4A7C15L;
+        final int mask = doorkeeper.length * Long.SIZE - 1;
+        final int i = (int) h & mask;
+        final int j = (int) (h >>> 32) & mask;
+        if ((doorkeeper[i >>> 6] & (1L << i)) != 0
+            && (doorkeeper[j >>> 6] & (1L << j)) != 0) {
+            return true;
+        }
+
+        // Cleared once it is an eighth full, to keep false positives rare.
+        if (++doorkeeperSize > doorkeeper.length * Long.SIZE / 8) {
+            Arrays.fill(doorkeeper, 0);
+            doorkeeperSize = 1;
+        }
+        doorkeeper[i >>> 6] |= 1L << i;
+        doorkeeper[j >>> 6] |= 1L << j;
+        return false;
+    }
+
+    private void put(SExp x, String fragment) {
+        final String old = fragments.put(new IdentityKey(x), fragment);
+        weight += fragment.length() - (old == null ? 0 : old.length());
+
+        // Evict the least recently used entries until we fit again.
+        Iterator<String> it = fragments.values().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            weight -= it.next().length();
+            it.remove();
+            ++evictionCount;
+        }
+    }
+
+    /**
+     * Drops every cached rendering. Statistics are kept.
+     */
+    public synchronized void clear() {
+        fragments.clear();
+        weight = 0;
+        Arrays.fill(doorkeeper, 0);
+        doorkeeperSize = 0;
+    }
+
+    /**
+     * @return The number of cached renderings.
+     */
+    public synchronized int size() {
+        return fragments.size();
+    }
+
+    /**
+     * @return The total length of all cached renderings.
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * @return How many lookups, of whole trees or of sublist elements,
+     *         found a cached rendering.
+     */
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return How many lookups, of whole trees or of sublist elements,
+     *         found nothing.
+     */
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    /**
+     * @return How many renderings were evicted to respect the max weight.
+     */
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return The statistics in a human-readable form.
+     */
+    @Override
+    public synchronized String toString() {
+        return "SExpRenderCache{size=" + fragments.size()
+            + ", weight=" + weight + "/" + maxWeight
+            + ", hits=" + hitCount
+            + ", misses=" + missCount
+            + ", evictions=" + evictionCount + "}";
+    }
+
+    /**
+     * Marks the point where everything pushed for <code>exp</code>
+     * has been rendered.
+     */
+    private record FragmentEnd(SExp exp, int start) {}
+
+    /**
+     * Compares SExps by reference, regardless of their own equals().
+     */
+    private record IdentityKey(SExp exp) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey k && k.exp == exp;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(exp);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package a0;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static a0.SExp.*;
+import static a0.A0SExp.*;
+
+class SExpRenderCacheTest {
+    @Test
+    void testSameAsListNotationFast() {
+        final SExpRenderCache cache = new SExpRenderCache(1 << 20);
+        final SExp[] exps = {
+            nil(),
+            s("Hello"),
+            cons(s("dotted"), s("pair")),
+            listFast(s("abcd"), s("def")),
+            cons(s("Not"), cons(s("exactly"), cons(s("a"), s("list")))),
+            listFast(listFast("lists", "nested"), listFast("in", "lists")),
+            listFast(
+                listFast("k", nil()),
+                listFast(nil(), listFast("k", "z"), cons(s("xxx"), s("k")))
+            ),
+            listFast(nil(), nil(), listFast(nil(), listFast("deeply",
+                listFast("nested", listFast("lists", "here")))), "end"),
+        };
+
+        // Render twice: once to fill the cache, once to hit it.
+        for (int round = 0; round < 2; ++round) {
+            for (SExp exp : exps) {
+                assertEquals(listNotationFast(exp), cache.listNotation(exp));
+            }
+        }
+    }
+
+    @Test
+    void testSubtreeReuse() {
+        final SExpRenderCache cache = new SExpRenderCache(1 << 20);
+        final SExp shared = listFast(
+            listFast("servers", "alpha", "beta", "gamma"),
+            cons(s("port"), s("8080"))
+        );
+
+        // Only admitted the second time it is rendered.
+        cache.listNotation(shared);
+        assertEquals(0, cache.size());
+        cache.listNotation(shared);
+        assertEquals(0, cache.hitCount());
+
+        // The shared subtree is already cached, only the new part is walked.
+        final SExp outer = listFast("config", shared, listFast(shared));
+        assertEquals(listNotationFast(outer), cache.listNotation(outer));
+        assertEquals(2, cache.hitCount());
+
+        assertEquals(listNotationFast(outer), cache.listNotation(outer));
+        assertEquals(4, cache.hitCount());
+
+        // Now the whole tree is cached too.
+        assertEquals(listNotationFast(outer), cache.listNotation(outer));
+        assertEquals(5, cache.hitCount());
+    }
+
+    @Test
+    void testLookupCounts() {
+        final SExpRenderCache cache = new SExpRenderCache(1 << 20);
+        final Object[] elems = new Object[10000];
+        for (int i = 0; i < elems.length; ++i) {
+            elems[i] = i % 1000 == 0 ? listFast("sub", "" + i) : "" + i;
+        }
+        final SExp list = listFast(elems);
+
+        // The whole list and its 10 sublists, not its 10000 spine cells.
+        assertEquals(listNotationFast(list), cache.listNotation(list));
+        assertEquals(0, cache.hitCount());
+        assertEquals(11, cache.missCount());
+
+        // Rendered twice before it is cached.
+        assertEquals(listNotationFast(list), cache.listNotation(list));
+        assertEquals(0, cache.hitCount());
+        assertEquals(22, cache.missCount());
+
+        assertEquals(listNotationFast(list), cache.listNotation(list));
+        assertEquals(1, cache.hitCount());
+        assertEquals(22, cache.missCount());
+    }
+
+    @Test
+    void testDeepNesting() {
+        final SExpRenderCache cache = new SExpRenderCache(1 << 20);
+        final SExp small = listFast("already", "cached", "tree");
+        cache.listNotation(small);
+        cache.listNotation(small);
+        assertEquals(1, cache.size());
+
+        SExp deep = nil();
+        for (int i = 0; i < 20000; ++i) {
+            deep = listFast("n" + i % 100, deep);
+        }
+        final String expected = listNotationFast(deep);
+
+        // A cold render caches nothing, so it evicts nothing either.
+        assertEquals(expected, cache.listNotation(deep));
+        assertEquals(1, cache.size());
+
+        // Then only the tree and its elements are cached, not every level:
+        // what is copied into the cache is linear in the length.
+        assertEquals(expected, cache.listNotation(deep));
+        assertEquals(3, cache.size());
+        assertTrue(cache.weight() <= 2L * expected.length() + 32);
+        assertEquals(0, cache.evictionCount());
+
+        assertEquals(expected, cache.listNotation(deep));
+        assertEquals(1, cache.hitCount());
+        assertEquals(listNotationFast(small), cache.listNotation(small));
+        assertEquals(2, cache.hitCount());
+    }
+
+    @Test
+    void testEviction() {
+        final SExpRenderCache cache = new SExpRenderCache(64);
+        for (int i = 0; i < 100; ++i) {
+            final SExp exp = listFast("element", "number", "" + i);
+            for (int round = 0; round < 2; ++round) {
+                assertEquals(listNotationFast(exp), cache.listNotation(exp));
+                assertTrue(cache.weight() <= 64);
+            }
+        }
+        // Only whole trees are looked up, never their spine cells. The
+        // doorkeeper may let a few in early, which turns misses into hits.
+        assertEquals(200, cache.hitCount() + cache.missCount());
+        assertTrue(cache.evictionCount() > 0);
+        assertEquals(100 - cache.evictionCount(), cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+    }
+}
@@ -0,0 +1,204 @@
+package a0;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Set operations over SExp lists, in linear time. Elements are compared
+ * in the sense of <code>A0SExp.equal</code>, through a hash set keyed by
+ * <code>SExpHash</code>.
+ *
+ * Every operation keeps the first occurrence of each element, in the
+ * order of the input. The parallel variants give the same results and
+ * are meant for lists with hundreds of thousands of elements or more.
+ */
+public class SExpSets {
+    /**
+     * Removes duplicates from a list. Example:
+     * The distinct of (a b a (c) b (c)) is (a b (c)).
+     *
+     * @param list The list.
+     * @return The elements of list, each one once, in order.
+     * @throws IllegalArgumentException if list is not a proper list.
+     */
+    public static SExp distinct(SExp list) {
+        return distinct(list, false);
+    }
+
+    /**
+     * @see #distinct(SExp)
+     * @param parallel Whether to use all available processors.
+     */
+    public static SExp distinct(SExp list, boolean parallel) {
+        return select(keys(toArray(list), parallel), k -> true, parallel);
+    }
+
+    /**
+     * The elements in x or in y. Example:
+     * The union of (a b) and (b c) is (a b c).
+     *
+     * @param x The list x.
+     * @param y The list y.
+     * @return The distinct elements of x, then those of y not in x.
+     * @throws IllegalArgumentException if x or y is not a proper list.
+     */
+    public static SExp union(SExp x, SExp y) {
+        return union(x, y, false);
+    }
+
+    /**
+     * @see #union(SExp, SExp)
+     * @param parallel Whether to use all available processors.
+     */
+    public static SExp union(SExp x, SExp y, boolean parallel) {
+        final SExp[] xs = toArray(x);
+        final SExp[] ys = toArray(y);
+        final SExp[] both = new SExp[xs.length + ys.length];
+        System.arraycopy(xs, 0, both, 0, xs.length);
+        System.arraycopy(ys, 0, both, xs.length, ys.length);
+        return select(keys(both, parallel), k -> true, parallel);
+    }
+
+    /**
+     * The elements in both x and y. Example:
+     * The intersection of (a b c) and (c b d) is (b c).
+     *
+     * @param x The list x.
+     * @param y The list y.
+     * @return The distinct elements of x that are in y.
+     * @throws IllegalArgumentException if x or y is not a proper list.
+     */
+    public static SExp intersection(SExp x, SExp y) {
+        return intersection(x, y, false);
+    }
+
+    /**
+     * @see #intersection(SExp, SExp)
+     * @param parallel Whether to use all available processors.
+     */
+    public static SExp intersection(SExp x, SExp y, boolean parallel) {
+        final Set<Key> in = toSet(keys(toArray(y), parallel), parallel);
+        return select(keys(toArray(x), parallel), in::contains, parallel);
+    }
+
+    /**
+     * The elements in x but not in y. Example:
+     * The difference of (a b c) and (b) is (a c).
+     *
+     * @param x The list x.
+     * @param y The list y.
+     * @return The distinct elements of x that are not in y.
+     * @throws IllegalArgumentException if x or y is not a proper list.
+     */
+    public static SExp difference(SExp x, SExp y) {
+        return difference(x, y, false);
+    }
+
+    /**
+     * @see #difference(SExp, SExp)
+     * @param parallel Whether to use all available processors.
+     */
+    public static SExp difference(SExp x, SExp y, boolean parallel) {
+        final Set<Key> out = toSet(keys(toArray(y), parallel), parallel);
+        return select(keys(toArray(x), parallel), k -> !out.contains(k),
+            parallel);
+    }
+
+    /**
+     * Builds the list of the first occurrences of the keys that pass the
+     * filter, in order.
+     */
+    private static SExp select(Key[] keys, Predicate<Key> keep,
+                               boolean parallel) {
+        final int[] picked;
+        if (parallel) {
+            // The index of the first occurrence of each key.
+            final ConcurrentHashMap<Key, Integer> first =
+                new ConcurrentHashMap<>();
+            IntStream.range(0, keys.length).parallel()
+                .forEach(i -> first.merge(keys[i], i, Math::min));
+            picked = IntStream.range(0, keys.length).parallel()
+                .filter(i -> first.get(keys[i]) == i && keep.test(keys[i]))
+                .toArray();
+        }
+        else {
+            final HashSet<Key> seen = new HashSet<>();
+            picked = IntStream.range(0, keys.length)
+                .filter(i -> keep.test(keys[i]) && seen.add(keys[i]))
+                .toArray();
+        }
+
+        SExp ret = SExp.nil();
+        for (int i = picked.length - 1; i >= 0; --i) {
+            ret = new SExp.Cons(keys[picked[i]].exp, ret);
+        }
+        return ret;
+    }
+
+    private static Set<Key> toSet(Key[] keys, boolean parallel) {
+        if (parallel) {
+            final Set<Key> ret = ConcurrentHashMap.newKeySet(keys.length);
+            IntStream.range(0, keys.length).parallel()
+                .forEach(i -> ret.add(keys[i]));
+            return ret;
+        }
+        final Set<Key> ret = new HashSet<>();
+        for (Key k : keys) {
+            ret.add(k);
+        }
+        return ret;
+    }
+
+    /**
+     * Hashes every element once. This is where most of the time goes
+     * for structured elements, so it is split across processors too.
+     */
+    private static Key[] keys(SExp[] elems, boolean parallel) {
+        final Key[] ret = new Key[elems.length];
+        IntStream range = IntStream.range(0, elems.length);
+        if (parallel) {
+            range = range.parallel();
+        }
+        range.forEach(i -> ret[i] = new Key(elems[i], SExpHash.hash(elems[i])));
+        return ret;
+    }
+
+    private static SExp[] toArray(SExp list) {
+        int n = 0;
+        for (SExp x = list; x instanceof SExp.Cons; x = x.rest()) {
+            ++n;
+        }
+
+        final SExp[] ret = new SExp[n];
+        for (int i = 0; i < n; ++i) {
+            ret[i] = list.first();
+            list = list.rest();
+        }
+        if (!list.isNil()) {
+            throw new IllegalArgumentException("Malformed list.");
+        }
+        return ret;
+    }
+
+    /**
+     * An element with its structural hash. Equal keys hold elements that
+     * are <code>A0SExp.equal</code>; <code>SExpOrder.compare</code> is used
+     * for the check as it does not recurse down long lists.
+     */
+    private record Key(SExp exp, long hash) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k
+                && k.hash == hash
+                && (k.exp == exp || SExpOrder.compare(k.exp, exp) == 0);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+    }
+}
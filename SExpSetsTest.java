@@ -0,0 +1,70 @@
+package a0;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static a0.SExp.*;
+import static a0.A0SExp.*;
+import static a0.SExpSets.*;
+
+class SExpSetsTest {
+    @Test
+    void testDistinct() {
+        assertTrue(equal(
+            listFast("a", "b", listFast("c"), cons(s("c"), s("d")), nil()),
+            distinct(listFast(
+                "a", "b", "a", listFast("c"), "b", cons(s("c"), s("d")),
+                listFast("c"), nil(), cons(s("c"), s("d")), nil()
+            ))
+        ));
+        assertEquals(nil(), distinct(nil()));
+
+        try {
+            distinct(cons(s("a"), s("b")));
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // Ignored.
+        }
+    }
+
+    @Test
+    void testSetOperations() {
+        final SExp x = listFast("a", listFast("b", "c"), "d", "a");
+        final SExp y = listFast("d", "e", listFast("b", "c"));
+
+        assertEquals("(a (b c) d e)", listNotationFast(union(x, y)));
+        assertEquals("((b c) d)", listNotationFast(intersection(x, y)));
+        assertEquals("(a)", listNotationFast(difference(x, y)));
+        assertEquals("(e)", listNotationFast(difference(y, x)));
+        assertEquals(nil(), intersection(x, nil()));
+        assertEquals("(a (b c) d)", listNotationFast(difference(x, nil())));
+    }
+
+    @Test
+    void testParallelMatchesSequential() {
+        final Random random = new Random(42);
+        final int n = 200000;
+        final Object[] xs = new Object[n];
+        final Object[] ys = new Object[n];
+        for (int i = 0; i < n; ++i) {
+            xs[i] = random.nextBoolean()
+                ? "s" + random.nextInt(n)
+                : listFast("k" + random.nextInt(n), "v");
+            ys[i] = "s" + random.nextInt(n);
+        }
+        final SExp x = listFast(xs);
+        final SExp y = listFast(ys);
+
+        assertEquals(listNotationFast(distinct(x)),
+            listNotationFast(distinct(x, true)));
+        assertEquals(listNotationFast(union(x, y)),
+            listNotationFast(union(x, y, true)));
+        assertEquals(listNotationFast(intersection(x, y)),
+            listNotationFast(intersection(x, y, true)));
+        assertEquals(listNotationFast(difference(x, y)),
+            listNotationFast(difference(x, y, true)));
+    }
+}
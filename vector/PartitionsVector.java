@@ -0,0 +1,75 @@
+package a0;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API kernels for the rows of the <code>Partitions</code> triangle.
+ *
+ * Kept in its own source directory, as it only compiles with
+ * <code>--add-modules jdk.incubator.vector</code>:
+ * <pre>
+ * javac --add-modules jdk.incubator.vector -d out *.java vector/*.java
+ * </pre>
+ * <code>Partitions</code> looks these kernels up by name when both the
+ * module and this class are present. Each kernel handles as many whole
+ * vectors as fit in [from, to) and returns where it stopped; the caller
+ * finishes the tail.
+ */
+class PartitionsVector {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    /**
+     * Sets <code>next[k] = prev[k - 1] + prev[k]</code>, wrapping around.
+     *
+     * @require 1 <= from
+     * @return The first k that was not computed.
+     */
+    static int addAdjacent(int[] prev, int[] next, int from, int to) {
+        int k = from;
+        for (final int bound = from + INTS.loopBound(to - from);
+             k < bound; k += INTS.length()) {
+            IntVector.fromArray(INTS, prev, k - 1)
+                .add(IntVector.fromArray(INTS, prev, k))
+                .intoArray(next, k);
+        }
+        return k;
+    }
+
+    /**
+     * Same as <code>addAdjacent(int[], int[], int, int)</code> for longs.
+     */
+    static int addAdjacent(long[] prev, long[] next, int from, int to) {
+        int k = from;
+        for (final int bound = from + LONGS.loopBound(to - from);
+             k < bound; k += LONGS.length()) {
+            LongVector.fromArray(LONGS, prev, k - 1)
+                .add(LongVector.fromArray(LONGS, prev, k))
+                .intoArray(next, k);
+        }
+        return k;
+    }
+
+    /**
+     * Sets <code>next[k] = (prev[k - 1] + prev[k]) mod p</code>.
+     *
+     * @require 1 <= from, 0 < p, and every prev[k] in [0, p)
+     * @return The first k that was not computed.
+     */
+    static int addAdjacentMod(int[] prev, int[] next, int from, int to, int p) {
+        final IntVector mod = IntVector.broadcast(INTS, p);
+        int k = from;
+        for (final int bound = from + INTS.loopBound(to - from);
+             k < bound; k += INTS.length()) {
+            // The sum is below 2p, so it fits in 32 bits read as unsigned.
+            final IntVector sum = IntVector.fromArray(INTS, prev, k - 1)
+                .add(IntVector.fromArray(INTS, prev, k));
+            sum.sub(mod, sum.compare(VectorOperators.UNSIGNED_GE, mod))
+                .intoArray(next, k);
+        }
+        return k;
+    }
+}